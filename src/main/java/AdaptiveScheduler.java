@@ -0,0 +1,234 @@
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A scheduler which tunes how often every target is scraped, based on how often the target has been changing.
+ * Each job reports whether the target has changed since its previous run. From the recent runs, the change rate of the target
+ * is estimated (using the estimator of Cho and Garcia-Molina, which accounts for changes missed between two runs),
+ * and the next run is scheduled after the expected time between two changes, kept within the min/max bounds.
+ *
+ * All targets share a global budget of requests per second. If the intervals wanted by the targets would exceed the budget,
+ * all of them are stretched proportionally, and the runs themselves are spaced so that the budget is never exceeded.
+ */
+public class AdaptiveScheduler {
+    private static final int HISTORY_SIZE = 20;
+
+    private final long minInterval;
+    private final long maxInterval;
+    private final double requestsPerSecond;
+    private final long permitSpacingNanos;
+    private final ScheduledExecutorService executorService;
+    private final CopyOnWriteArrayList<Target> targets;
+    private long nextPermitAt;
+
+    /**
+     * @param minInterval       the shortest period (in milliseconds) between two runs of a target
+     * @param maxInterval       the longest period (in milliseconds) between two runs of a target
+     * @param requestsPerSecond the global budget of runs per second, shared by all targets
+     * @param threads           the number of threads running the jobs
+     */
+    public AdaptiveScheduler(long minInterval, long maxInterval, double requestsPerSecond, int threads) {
+        if (minInterval <= 0 || maxInterval < minInterval) {
+            throw new IllegalArgumentException("Intervals have to satisfy 0 < minInterval <= maxInterval");
+        }
+        if (requestsPerSecond <= 0) {
+            throw new IllegalArgumentException("Requests per second have to be positive");
+        }
+        this.minInterval = minInterval;
+        this.maxInterval = maxInterval;
+        this.requestsPerSecond = requestsPerSecond;
+        this.permitSpacingNanos = (long) (1_000_000_000L / requestsPerSecond);
+        this.executorService = Executors.newScheduledThreadPool(threads);
+        this.targets = new CopyOnWriteArrayList<>();
+        this.nextPermitAt = System.nanoTime();
+    }
+
+    /**
+     * A method that starts scheduling a job. The first run happens immediately.
+     *
+     * @param name a name of the target, used in error messages
+     * @param job  a job scraping the target, which returns true if the target has changed since the previous run
+     */
+    public Target schedule(String name, BooleanSupplier job) {
+        Target target = new Target(name, job);
+        targets.add(target);
+        executorService.schedule(() -> run(target), 0, TimeUnit.MILLISECONDS);
+        return target;
+    }
+
+    /**
+     * A method that stops scheduling the job of the given target.
+     */
+    public void cancel(Target target) {
+        targets.remove(target);
+    }
+
+    public void shutdown() {
+        targets.clear();
+        executorService.shutdownNow();
+    }
+
+    /**
+     * A method that reserves a permit from the global budget for the job of a target. If the permit is not free yet,
+     * the job is rescheduled to the time of the permit, so no worker thread is blocked while waiting for the budget.
+     */
+    private void run(Target target) {
+        if (!targets.contains(target)) {
+            return;
+        }
+        long wait = reservePermit();
+        if (wait > 0) {
+            executorService.schedule(() -> runPermitted(target), wait, TimeUnit.NANOSECONDS);
+        } else {
+            runPermitted(target);
+        }
+    }
+
+    /**
+     * A method that runs the job of a target which already holds a permit, and schedules its next run.
+     */
+    private void runPermitted(Target target) {
+        if (!targets.contains(target)) {
+            return;
+        }
+        boolean changed;
+        try {
+            changed = target.job.getAsBoolean();
+        } catch (RuntimeException e) {
+            System.out.println("Problem running scheduled job " + target.name + ": " + e.getMessage());
+            e.printStackTrace();
+            changed = false;
+        }
+        target.record(System.currentTimeMillis(), changed);
+
+        if (targets.contains(target) && !executorService.isShutdown()) {
+            long interval = applyBudget(target.wanted);
+            target.interval = interval;
+            executorService.schedule(() -> run(target), interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * A method that reserves the next free slot of the global budget, and returns how long (in nanoseconds) the caller has to wait for it.
+     */
+    private synchronized long reservePermit() {
+        long now = System.nanoTime();
+        long permitAt = Math.max(now, nextPermitAt);
+        nextPermitAt = permitAt + permitSpacingNanos;
+        return permitAt - now;
+    }
+
+    /**
+     * A method that stretches the wanted interval, if the intervals wanted by all targets together exceed the requests-per-second budget.
+     */
+    private long applyBudget(long wantedInterval) {
+        double totalRate = 0;
+        for (Target target : targets) {
+            totalRate += 1000.0 / target.wanted;
+        }
+        if (totalRate <= requestsPerSecond) {
+            return wantedInterval;
+        }
+        return (long) Math.ceil(wantedInterval * totalRate / requestsPerSecond);
+    }
+
+    /**
+     * A scheduled target along with the history of its recent runs.
+     */
+    public class Target {
+        private final String name;
+        private final BooleanSupplier job;
+        private final long[] runTimes;
+        private final boolean[] changes;
+        private int runs;
+        private volatile long interval;
+        private volatile long wanted;
+
+        Target(String name, BooleanSupplier job) {
+            this.name = name;
+            this.job = job;
+            this.runTimes = new long[HISTORY_SIZE + 1];
+            this.changes = new boolean[HISTORY_SIZE + 1];
+            this.interval = minInterval;
+            this.wanted = minInterval;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * A method that returns the current period (in milliseconds) between two runs of the target.
+         */
+        public long getInterval() {
+            return interval;
+        }
+
+        /**
+         * A method that returns the period (in milliseconds) wanted by the target according to its change rate,
+         * before it is stretched to fit the global budget.
+         */
+        public long getWantedInterval() {
+            return wanted;
+        }
+
+        /**
+         * A method that returns the estimated number of changes per second, or -1 if there is not enough runs yet.
+         */
+        public synchronized double getEstimatedChangeRate() {
+            double rate = estimateRate();
+            return rate < 0 ? -1 : rate * 1000;
+        }
+
+        /**
+         * A method that records one run of the target at the given time (in milliseconds), and updates the wanted interval.
+         */
+        synchronized void record(long time, boolean changed) {
+            int slot = runs % runTimes.length;
+            runTimes[slot] = time;
+            changes[slot] = changed;
+            runs++;
+
+            double rate = estimateRate();
+            long estimated;
+            if (rate < 0) {
+                estimated = minInterval;
+            } else if (rate == 0) {
+                estimated = maxInterval;
+            } else {
+                estimated = Math.max(minInterval, Math.min(maxInterval, (long) (1 / rate)));
+            }
+            // the interval drops immediately when changes speed up, but grows at most twice per run,
+            // so a few unchanged runs do not push a target straight to the max interval
+            wanted = Math.min(estimated, Math.min(maxInterval, wanted * 2));
+        }
+
+        /**
+         * A method that estimates the change rate (changes per millisecond) from the recent runs. The first run is not counted,
+         * as there was nothing to compare it with.
+         */
+        private double estimateRate() {
+            int samples = Math.min(runs - 1, HISTORY_SIZE);
+            if (samples < 1) {
+                return -1;
+            }
+            int newest = (runs - 1) % runTimes.length;
+            int oldest = (runs - 1 - samples) % runTimes.length;
+            long elapsed = runTimes[newest] - runTimes[oldest];
+            if (elapsed <= 0) {
+                return -1;
+            }
+            int changed = 0;
+            for (int i = 0; i < samples; i++) {
+                if (changes[(runs - 1 - i) % runTimes.length]) {
+                    changed++;
+                }
+            }
+            double averageInterval = (double) elapsed / samples;
+            return Math.log((samples + 0.5) / (samples - changed + 0.5)) / averageInterval;
+        }
+    }
+}
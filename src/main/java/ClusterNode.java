@@ -0,0 +1,233 @@
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A node of a scraping cluster. Targets are partitioned between the live nodes by consistent hashing of their host,
+ * so every host is scraped by exactly one node, and when a node joins or dies, only its hosts are moved to other nodes.
+ *
+ * The node sends heartbeats to the coordination backend, and refreshes its view of the live nodes with every heartbeat.
+ * Scheduled jobs are additionally guarded by leases: a job is run only by the node owning its host, and only while that node
+ * holds the lease of the job, so two nodes with a different view of the cluster never run the same job at the same time.
+ * The lease is renewed with every heartbeat while the job is running, so even a job running longer than its period keeps it.
+ */
+public class ClusterNode {
+    private static final int VIRTUAL_NODES = 128;
+
+    private final String nodeId;
+    private final CoordinationBackend backend;
+    private final long heartbeatInterval;
+    private final long nodeTtl;
+    private final ScheduledExecutorService heartbeatService;
+    private final ScheduledExecutorService executorService;
+    private volatile ConsistentHashRing ring;
+    private volatile List<String> liveNodes;
+    private volatile boolean running;
+
+    /**
+     * @param heartbeatInterval how often (in milliseconds) the node sends heartbeats. A node missing three heartbeats is considered dead.
+     */
+    public ClusterNode(CoordinationBackend backend, long heartbeatInterval) {
+        this(UUID.randomUUID().toString(), backend, heartbeatInterval);
+    }
+
+    public ClusterNode(String nodeId, CoordinationBackend backend, long heartbeatInterval) {
+        this.nodeId = nodeId;
+        this.backend = backend;
+        this.heartbeatInterval = heartbeatInterval;
+        this.nodeTtl = heartbeatInterval * 3;
+        this.heartbeatService = Executors.newSingleThreadScheduledExecutor();
+        this.executorService = Executors.newScheduledThreadPool(4);
+        this.ring = new ConsistentHashRing(VIRTUAL_NODES);
+        this.liveNodes = List.of();
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public List<String> getLiveNodes() {
+        return liveNodes;
+    }
+
+    /**
+     * A method that joins the cluster, and starts sending heartbeats.
+     */
+    public ClusterNode start() throws IOException {
+        running = true;
+        backend.heartbeat(nodeId, nodeTtl);
+        refresh();
+        heartbeatService.scheduleAtFixedRate(this::heartbeat, heartbeatInterval, heartbeatInterval, TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    /**
+     * A method that stops all jobs of the node, and leaves the cluster, so the other nodes take over its hosts right away.
+     * Jobs which are running are finished first, while the node keeps sending heartbeats and renewing their leases,
+     * so no other node starts the same job before this one has finished it.
+     */
+    public void stop() {
+        running = false;
+        executorService.shutdown();
+        try {
+            executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            heartbeatService.shutdown();
+            heartbeatService.awaitTermination(nodeTtl, TimeUnit.MILLISECONDS);
+            backend.leave(nodeId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.out.println("Problem leaving the cluster: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * A method that checks whether the host of the given URL is assigned to this node.
+     */
+    public boolean owns(String url) {
+        return nodeId.equals(ring.getNode(hostOf(url)));
+    }
+
+    /**
+     * A method that filters the given URLs lazily, keeping only those assigned to this node. It can be used to shard
+     * a seed source (e.g. UrlTemplate.expandGrid) before passing it to a FetchPipeline, while every node iterates the same source.
+     */
+    public Iterator<String> ownedUrls(Iterator<String> urls) {
+        return new Iterator<>() {
+            private String next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && urls.hasNext()) {
+                    String url = urls.next();
+                    if (owns(url)) {
+                        next = url;
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String url = next;
+                next = null;
+                return url;
+            }
+        };
+    }
+
+    /**
+     * A method for invoking a runnable every given amount of time, on exactly one node of the cluster. Every node of the cluster
+     * should schedule the same job; it runs on the node owning the host of the URL, while that node holds the lease of the job.
+     * If the owner dies, its lease expires, and the new owner of the host takes the job over.
+     *
+     * @param jobId a cluster-wide unique id of the job
+     * @param url   the scraped URL, whose host decides which node runs the job
+     */
+    public void automatize(String jobId, String url, long miliseconds, Runnable r) {
+        long leaseTtl = Math.max(miliseconds, heartbeatInterval) + nodeTtl;
+        AtomicBoolean leaseHeld = new AtomicBoolean();
+        executorService.scheduleAtFixedRate(() -> runIfLeader(jobId, url, leaseTtl, leaseHeld, r), 0, miliseconds, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * A method that runs the job, if this node owns its host and holds its lease. The lease is released only by the node
+     * which has held it, so the nodes not owning the host do not touch the backend at all.
+     */
+    private void runIfLeader(String jobId, String url, long leaseTtl, AtomicBoolean leaseHeld, Runnable r) {
+        if (!running) {
+            return;
+        }
+        try {
+            if (!owns(url)) {
+                if (leaseHeld.getAndSet(false)) {
+                    backend.releaseLease(jobId, nodeId);
+                }
+                return;
+            }
+            leaseHeld.set(backend.tryAcquireLease(jobId, nodeId, leaseTtl));
+            if (leaseHeld.get()) {
+                runRenewingLease(jobId, leaseTtl, leaseHeld, r);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Problem running job " + jobId + " on node " + nodeId + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * A method that runs the job, while renewing its lease with every heartbeat, so the lease cannot expire
+     * during a long run (e.g. a slow fetch) and let another node start the same job.
+     */
+    private void runRenewingLease(String jobId, long leaseTtl, AtomicBoolean leaseHeld, Runnable r) {
+        ScheduledFuture<?> renewal;
+        try {
+            renewal = heartbeatService.scheduleAtFixedRate(() -> renewLease(jobId, leaseTtl, leaseHeld),
+                    heartbeatInterval, heartbeatInterval, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // the node is being stopped
+            return;
+        }
+        try {
+            r.run();
+        } finally {
+            renewal.cancel(false);
+        }
+    }
+
+    private void renewLease(String jobId, long leaseTtl, AtomicBoolean leaseHeld) {
+        try {
+            if (!backend.tryAcquireLease(jobId, nodeId, leaseTtl)) {
+                leaseHeld.set(false);
+                System.out.println("Node " + nodeId + " has lost the lease of running job " + jobId);
+            }
+        } catch (IOException e) {
+            System.out.println("Problem renewing the lease of job " + jobId + " on node " + nodeId + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private void heartbeat() {
+        try {
+            backend.heartbeat(nodeId, nodeTtl);
+            refresh();
+        } catch (IOException e) {
+            System.out.println("Problem sending a heartbeat of node " + nodeId + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * A method that rebuilds the hash ring, if the set of live nodes has changed.
+     */
+    private void refresh() throws IOException {
+        List<String> nodes = backend.getLiveNodes();
+        if (!nodes.equals(liveNodes)) {
+            ring = new ConsistentHashRing(nodes, VIRTUAL_NODES);
+            liveNodes = nodes;
+        }
+    }
+
+    private static String hostOf(String url) {
+        try {
+            return new URL(url).getHost().toLowerCase(Locale.ROOT);
+        } catch (MalformedURLException e) {
+            return url;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A consistent hash ring, which assigns keys (e.g. hosts) to nodes. Every node is placed on the ring many times (virtual nodes),
+ * so the keys are spread evenly, and when a node joins or leaves, only the keys of that node move to other nodes.
+ */
+public class ConsistentHashRing {
+    private final int virtualNodes;
+    private final TreeMap<Long, String> ring;
+
+    /**
+     * @param virtualNodes the number of positions of every node on the ring
+     */
+    public ConsistentHashRing(int virtualNodes) {
+        this.virtualNodes = virtualNodes;
+        this.ring = new TreeMap<>();
+    }
+
+    public ConsistentHashRing(Collection<String> nodes, int virtualNodes) {
+        this(virtualNodes);
+        for (String node : nodes) {
+            addNode(node);
+        }
+    }
+
+    public ConsistentHashRing addNode(String node) {
+        for (int i = 0; i < virtualNodes; i++) {
+            ring.put(hash(node + "#" + i), node);
+        }
+        return this;
+    }
+
+    public ConsistentHashRing removeNode(String node) {
+        for (int i = 0; i < virtualNodes; i++) {
+            ring.remove(hash(node + "#" + i), node);
+        }
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return ring.isEmpty();
+    }
+
+    /**
+     * A method that returns the node the key belongs to, or null if the ring is empty.
+     */
+    public String getNode(String key) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> entry = ring.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    /**
+     * A method that hashes the key with FNV-1a, and scrambles the bits, so similar keys land far apart on the ring.
+     */
+    private static long hash(String key) {
+        long hash = Hashing.fnv1a64(key);
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,44 @@
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A shared store used by the nodes of a scraping cluster to find each other and to avoid running the same job twice.
+ * Nodes announce themselves by heartbeats, which expire when a node stops sending them. Scheduled jobs are guarded by leases -
+ * only the node holding the lease of a job runs it, and the lease expires if the node dies.
+ * See FileCoordinationBackend for an implementation based on a shared folder.
+ */
+public interface CoordinationBackend {
+
+    /**
+     * A method that registers the node, or extends its registration, for the given time (in milliseconds).
+     */
+    void heartbeat(String nodeId, long ttl) throws IOException;
+
+    /**
+     * A method that removes the node from the cluster immediately, and releases all of its leases.
+     */
+    void leave(String nodeId) throws IOException;
+
+    /**
+     * A method that returns the ids of all nodes with an unexpired heartbeat, sorted alphabetically.
+     */
+    List<String> getLiveNodes() throws IOException;
+
+    /**
+     * A method that acquires the lease of the job for the given time (in milliseconds). The lease is acquired if it is free,
+     * expired, or already held by the same node (in which case it is renewed).
+     *
+     * @return true if the node holds the lease now
+     */
+    boolean tryAcquireLease(String jobId, String nodeId, long ttl) throws IOException;
+
+    /**
+     * A method that releases the lease of the job, if it is held by the given node.
+     */
+    void releaseLease(String jobId, String nodeId) throws IOException;
+
+    /**
+     * A method that returns the id of the node holding an unexpired lease of the job, or null if the lease is free.
+     */
+    String getLeaseHolder(String jobId) throws IOException;
+}
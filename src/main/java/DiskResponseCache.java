@@ -0,0 +1,437 @@
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A persistent HTTP response cache, which survives process restarts. The raw response bodies are stored together with
+ * their validators (ETag and Last-Modified) in a single append-only log file. The log as found on startup (or after a compaction)
+ * is memory-mapped once for reading, records appended later are read through the file channel. Only a small index
+ * (URL -> position in the log, validators) is kept in memory, and it is rebuilt by scanning the log on startup.
+ *
+ * Every record is protected by a CRC checksum, so a record torn by a crash is detected on startup, and the log is truncated
+ * to the last complete record. When the log grows over the size limit, it is compacted: the least recently used responses are dropped
+ * until the log shrinks to three quarters of the limit, and the remaining ones are copied into a new log, which atomically replaces
+ * the old one. The free quarter is then filled by the following puts, so a full cache is not rewritten on every put.
+ *
+ * Record layout: magic (int), payload length (int), payload, CRC32 of the payload (long).
+ * Payload layout: stored-at timestamp (long), URL, ETag, Last-Modified, charset (modified UTF-8 strings), body length (int), body.
+ */
+public class DiskResponseCache implements Closeable {
+    private static final int MAGIC = 0x48534331;
+    private static final int HEADER_SIZE = 8;
+    private static final int TRAILER_SIZE = 8;
+    private static final String LOG_FILE = "responses.log";
+    private static final String LOCK_FILE = "responses.lock";
+    private static final double LOW_WATER_MARK = 0.75;
+
+    private final Path directory;
+    private final Path logFile;
+    private final long maxBytes;
+    private final LinkedHashMap<String, IndexEntry> index;
+
+    private FileChannel lockChannel;
+    private FileLock lock;
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private boolean cacheOnly;
+    private int compactions;
+
+    /**
+     * @param directory a folder where the cache is stored. If no folder is found on this path, it will be created.
+     * @param maxBytes  the maximal size of the log file. Reaching it triggers a compaction, which evicts the least recently used responses.
+     */
+    public DiskResponseCache(String directory, long maxBytes) throws IOException {
+        if (maxBytes <= 0 || maxBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Cache size has to be between 1 and " + Integer.MAX_VALUE + " bytes");
+        }
+        this.directory = FileSystems.getDefault().getPath(directory);
+        this.logFile = this.directory.resolve(LOG_FILE);
+        this.maxBytes = maxBytes;
+        this.index = new LinkedHashMap<>(16, 0.75f, true);
+
+        Files.createDirectories(this.directory);
+        this.lockChannel = FileChannel.open(this.directory.resolve(LOCK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        this.lock = lockChannel.tryLock();
+        if (lock == null) {
+            lockChannel.close();
+            throw new IOException("Response cache " + directory + " is used by another process");
+        }
+        openLog();
+    }
+
+    /**
+     * A method for switching the cache into a replay mode. In the cache-only mode, an HtmlScraper using this cache
+     * never connects to the network, and serves only the stored responses.
+     */
+    public DiskResponseCache setCacheOnly(boolean cacheOnly) {
+        this.cacheOnly = cacheOnly;
+        return this;
+    }
+
+    public boolean isCacheOnly() {
+        return cacheOnly;
+    }
+
+    /**
+     * A method that returns the stored response for the given URL, or null if there is none.
+     */
+    public synchronized CachedResponse get(String url) {
+        IndexEntry entry = index.get(url);
+        if (entry == null) {
+            return null;
+        }
+        byte[] body = new byte[entry.bodyLength];
+        try {
+            read(entry.bodyOffset, ByteBuffer.wrap(body));
+        } catch (IOException e) {
+            System.out.println("Unable to read the cached response for " + url + ": " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+        return new CachedResponse(body, entry.charset, entry.etag, entry.lastModified, entry.storedAt);
+    }
+
+    /**
+     * A method that stores a response. A previously stored response for the same URL is replaced.
+     */
+    public synchronized void put(String url, byte[] body, String charset, String etag, String lastModified) {
+        try {
+            byte[] record = encode(url, body, charset, etag, lastModified, System.currentTimeMillis());
+            if (record.length > maxBytes) {
+                return;
+            }
+            if (channel.size() + record.length > maxBytes) {
+                compact(Math.min((long) (maxBytes * LOW_WATER_MARK), maxBytes - record.length));
+            }
+            long offset = channel.size();
+            ByteBuffer buffer = ByteBuffer.wrap(record);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, offset + buffer.position());
+            }
+            readRecord(ByteBuffer.wrap(record), 0, offset);
+        } catch (IOException e) {
+            System.out.println("Unable to store a response for " + url + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * A method that returns the number of stored responses.
+     */
+    public synchronized int count() {
+        return index.size();
+    }
+
+    /**
+     * A method that returns how many times the log has been compacted since the cache was opened.
+     */
+    public synchronized int getCompactions() {
+        return compactions;
+    }
+
+    /**
+     * A method that returns the current size of the log file in bytes.
+     */
+    public synchronized long size() throws IOException {
+        return channel.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        unmap(mapped);
+        mapped = null;
+        if (channel != null) {
+            channel.force(true);
+            channel.close();
+            channel = null;
+        }
+        if (lock != null) {
+            lock.release();
+            lock = null;
+        }
+        if (lockChannel != null) {
+            lockChannel.close();
+            lockChannel = null;
+        }
+    }
+
+    /**
+     * A method that opens the log file and rebuilds the in-memory index from it.
+     * The log is truncated after the last complete and valid record.
+     */
+    private void openLog() throws IOException {
+        channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index.clear();
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            size = Integer.MAX_VALUE;
+        }
+        long validEnd = 0;
+        MappedByteBuffer buffer = null;
+        if (size > 0) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            while (validEnd < size) {
+                long next = readRecord(buffer, validEnd, validEnd);
+                if (next < 0) {
+                    break;
+                }
+                validEnd = next;
+            }
+        }
+        if (validEnd < channel.size()) {
+            System.out.println("Response cache " + logFile + " was not closed properly, dropping " +
+                    (channel.size() - validEnd) + " bytes of incomplete records");
+            channel.truncate(validEnd);
+            channel.force(true);
+            buffer = validEnd > 0 ? channel.map(FileChannel.MapMode.READ_ONLY, 0, validEnd) : null;
+        }
+        mapped = buffer;
+    }
+
+    /**
+     * A method that fills the buffer with the bytes of the log starting at the given position. The memory-mapped part
+     * of the log is read directly, records appended after the mapping was created are read through the file channel.
+     */
+    private void read(long position, ByteBuffer target) throws IOException {
+        if (mapped != null && position + target.remaining() <= mapped.capacity()) {
+            ByteBuffer view = mapped.duplicate();
+            view.position((int) position);
+            view.limit((int) position + target.remaining());
+            target.put(view);
+            return;
+        }
+        while (target.hasRemaining()) {
+            if (channel.read(target, position + target.position()) < 0) {
+                throw new IOException("Unexpected end of the response cache " + logFile);
+            }
+        }
+    }
+
+    /**
+     * A method that reads a record starting at the given position of the buffer and puts it into the index.
+     *
+     * @param fileOffset the position of the record in the log file
+     * @return the position after the record, or -1 if the record is incomplete or corrupted
+     */
+    private long readRecord(ByteBuffer buffer, long position, long fileOffset) {
+        int start = (int) position;
+        if (buffer.limit() - start < HEADER_SIZE + TRAILER_SIZE || buffer.getInt(start) != MAGIC) {
+            return -1;
+        }
+        int payloadLength = buffer.getInt(start + 4);
+        if (payloadLength < 0 || (long) buffer.limit() - start - HEADER_SIZE - TRAILER_SIZE < payloadLength) {
+            return -1;
+        }
+        ByteBuffer payload = buffer.duplicate();
+        payload.position(start + HEADER_SIZE);
+        payload.limit(start + HEADER_SIZE + payloadLength);
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        if (crc.getValue() != buffer.getLong(start + HEADER_SIZE + payloadLength)) {
+            return -1;
+        }
+
+        long storedAt = payload.getLong();
+        String url = readString(payload);
+        String etag = readString(payload);
+        String lastModified = readString(payload);
+        String charset = readString(payload);
+        int bodyLength = payload.getInt();
+        int bodyPosition = payload.position();
+
+        int recordLength = HEADER_SIZE + payloadLength + TRAILER_SIZE;
+        IndexEntry entry = new IndexEntry(fileOffset, recordLength, fileOffset + (bodyPosition - start), bodyLength,
+                storedAt, emptyToNull(etag), emptyToNull(lastModified), emptyToNull(charset));
+        index.put(url, entry);
+        return position + recordLength;
+    }
+
+    /**
+     * A method that rewrites the log, keeping only the most recently used responses which fit into the given amount of bytes.
+     * The new log is written into a temporary file first, and then atomically moved over the old one.
+     */
+    private void compact(long targetBytes) throws IOException {
+        compactions++;
+        ArrayList<Map.Entry<String, IndexEntry>> entries = new ArrayList<>(index.entrySet());
+        ArrayList<Map.Entry<String, IndexEntry>> kept = new ArrayList<>();
+        long keptBytes = 0;
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            IndexEntry entry = entries.get(i).getValue();
+            if (keptBytes + entry.recordLength > targetBytes) {
+                break;
+            }
+            keptBytes += entry.recordLength;
+            kept.add(entries.get(i));
+        }
+
+        Path tmp = directory.resolve(LOG_FILE + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (int i = kept.size() - 1; i >= 0; i--) {
+                IndexEntry entry = kept.get(i).getValue();
+                long copied = 0;
+                while (copied < entry.recordLength) {
+                    copied += channel.transferTo(entry.offset + copied, entry.recordLength - copied, out);
+                }
+            }
+            out.force(true);
+        }
+        unmap(mapped);
+        mapped = null;
+        channel.close();
+        try {
+            replaceLog(tmp);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        } finally {
+            // reopen the new log, or the old one if it could not be replaced, so the cache stays usable either way
+            openLog();
+        }
+    }
+
+    /**
+     * A method that atomically replaces the log with the compacted copy.
+     */
+    void replaceLog(Path compacted) throws IOException {
+        Files.move(compacted, logFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * A method that releases the memory mapping right away, instead of waiting for the garbage collector.
+     * Some platforms (e.g. Windows) refuse to replace or delete a file while it is mapped. If the mapping cannot be
+     * released explicitly, it is left to the garbage collector.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            System.out.println("Unable to release the mapping of the response cache: " + e.getMessage());
+        }
+    }
+
+    private static byte[] encode(String url, byte[] body, String charset, String etag, String lastModified, long storedAt)
+            throws IOException {
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(body.length + 256);
+        DataOutputStream payload = new DataOutputStream(payloadBytes);
+        payload.writeLong(storedAt);
+        payload.writeUTF(url);
+        payload.writeUTF(etag == null ? "" : etag);
+        payload.writeUTF(lastModified == null ? "" : lastModified);
+        payload.writeUTF(charset == null ? "" : charset);
+        payload.writeInt(body.length);
+        payload.write(body);
+        payload.flush();
+        byte[] payloadArray = payloadBytes.toByteArray();
+
+        CRC32 crc = new CRC32();
+        crc.update(payloadArray);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + payloadArray.length + TRAILER_SIZE);
+        record.putInt(MAGIC);
+        record.putInt(payloadArray.length);
+        record.put(payloadArray);
+        record.putLong(crc.getValue());
+        return record.array();
+    }
+
+    /**
+     * A method that reads a string written by DataOutputStream.writeUTF.
+     */
+    private static String readString(ByteBuffer buffer) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * A response stored in the cache.
+     */
+    public static class CachedResponse {
+        private final byte[] body;
+        private final String charset;
+        private final String etag;
+        private final String lastModified;
+        private final long storedAt;
+
+        private CachedResponse(byte[] body, String charset, String etag, String lastModified, long storedAt) {
+            this.body = body;
+            this.charset = charset;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.storedAt = storedAt;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public String getCharset() {
+            return charset;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        public long getStoredAt() {
+            return storedAt;
+        }
+    }
+
+    private static class IndexEntry {
+        private final long offset;
+        private final int recordLength;
+        private final long bodyOffset;
+        private final int bodyLength;
+        private final long storedAt;
+        private final String etag;
+        private final String lastModified;
+        private final String charset;
+
+        private IndexEntry(long offset, int recordLength, long bodyOffset, int bodyLength, long storedAt,
+                           String etag, String lastModified, String charset) {
+            this.offset = offset;
+            this.recordLength = recordLength;
+            this.bodyOffset = bodyOffset;
+            this.bodyLength = bodyLength;
+            this.storedAt = storedAt;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.charset = charset;
+        }
+    }
+}
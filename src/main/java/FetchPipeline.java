@@ -0,0 +1,89 @@
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A pipeline for scraping many URLs in parallel. The URLs are pulled from an iterator only as fast as the workers process them,
+ * so a lazily expanded source (e.g. UrlTemplate.expandGrid) is never materialized as a whole.
+ * For every URL a new HtmlScraper is created and passed to the consumer on one of the worker threads.
+ */
+public class FetchPipeline {
+    private final int parallelism;
+    private Function<String, HtmlScraper> scraperFactory;
+
+    /**
+     * @param parallelism the number of URLs being scraped at the same time
+     */
+    public FetchPipeline(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism has to be at least 1");
+        }
+        this.parallelism = parallelism;
+        this.scraperFactory = HtmlScraper::new;
+    }
+
+    /**
+     * A method for customizing the created scrapers, e.g. for sharing a RobotsCache or a DiskResponseCache,
+     * or for adding selectors.
+     */
+    public FetchPipeline setScraperFactory(Function<String, HtmlScraper> scraperFactory) {
+        this.scraperFactory = scraperFactory;
+        return this;
+    }
+
+    /**
+     * A method that scrapes the URLs of a template expanded with every combination of the grid values.
+     */
+    public long run(UrlTemplate template, Map<String, List<String>> grid, Consumer<HtmlScraper> consumer) {
+        return run(template.expandGrid(grid).iterator(), consumer);
+    }
+
+    /**
+     * A method that passes a scraper for every URL to the consumer, using the given number of threads, and waits until all URLs are processed.
+     * An exception thrown by the consumer is printed, and the processing of the other URLs continues.
+     * An exception thrown by the URL iterator stops the pipeline: it is rethrown, and the URLs already taken are finished in the background.
+     *
+     * @return the number of processed URLs
+     */
+    public long run(Iterator<String> urls, Consumer<HtmlScraper> consumer) {
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService executorService = Executors.newFixedThreadPool(parallelism,
+                r -> new Thread(r, "fetch-pipeline-" + threads.incrementAndGet()));
+        Semaphore slots = new Semaphore(parallelism * 2);
+        AtomicLong processed = new AtomicLong();
+        try {
+            while (urls.hasNext()) {
+                String url = urls.next();
+                slots.acquire();
+                executorService.execute(() -> {
+                    try {
+                        consumer.accept(scraperFactory.apply(url));
+                    } catch (RuntimeException e) {
+                        System.out.println("Problem scraping " + url + ": " + e.getMessage());
+                        e.printStackTrace();
+                    } finally {
+                        processed.incrementAndGet();
+                        slots.release();
+                    }
+                });
+            }
+            executorService.shutdown();
+            executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            executorService.shutdownNow();
+            Thread.currentThread().interrupt();
+        } finally {
+            // the worker threads are not daemons, so the pool has to be shut down even if the iterator fails
+            executorService.shutdown();
+        }
+        return processed.get();
+    }
+}
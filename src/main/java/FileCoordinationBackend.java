@@ -0,0 +1,245 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A coordination backend storing the cluster state in a shared folder, so it can be used by several JVMs on one machine,
+ * or on machines sharing a network file system with working file locks.
+ * Every node has a file in the nodes subfolder with the expiration time of its heartbeat, every lease has a file
+ * in the leases subfolder with the job id, the holder and the expiration time. All operations are done under an exclusive file lock,
+ * and the files are replaced atomically.
+ *
+ * Lease files are named by the hash of the job id. If two job ids have the same hash, the second one takes the next free
+ * file of the hash (hash-1.lease, hash-2.lease...). Released leases are not deleted, only expired, so this chain never has gaps.
+ */
+public class FileCoordinationBackend implements CoordinationBackend {
+    private static final ConcurrentHashMap<Path, Object> LOCAL_LOCKS = new ConcurrentHashMap<>();
+
+    private final Path nodesFolder;
+    private final Path leasesFolder;
+    private final Path lockFile;
+    private final Object localLock;
+
+    /**
+     * @param folder a folder shared by all nodes. If no folder is found on this path, it will be created.
+     */
+    public FileCoordinationBackend(String folder) throws IOException {
+        Path root = FileSystems.getDefault().getPath(folder).toAbsolutePath().normalize();
+        this.nodesFolder = root.resolve("nodes");
+        this.leasesFolder = root.resolve("leases");
+        this.lockFile = root.resolve("coordination.lock");
+        Files.createDirectories(nodesFolder);
+        Files.createDirectories(leasesFolder);
+        this.localLock = LOCAL_LOCKS.computeIfAbsent(lockFile, path -> new Object());
+    }
+
+    @Override
+    public void heartbeat(String nodeId, long ttl) throws IOException {
+        withLock(() -> {
+            write(nodesFolder.resolve(fileName(nodeId)), nodeId, System.currentTimeMillis() + ttl);
+            return null;
+        });
+    }
+
+    @Override
+    public void leave(String nodeId) throws IOException {
+        withLock(() -> {
+            Files.deleteIfExists(nodesFolder.resolve(fileName(nodeId)));
+            try (DirectoryStream<Path> leases = Files.newDirectoryStream(leasesFolder, "*.lease")) {
+                for (Path file : leases) {
+                    Lease lease = readLease(file);
+                    if (lease != null && lease.holder.equals(nodeId)) {
+                        writeLease(file, lease.jobId, nodeId, 0);
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public List<String> getLiveNodes() throws IOException {
+        return withLock(() -> {
+            ArrayList<String> nodes = new ArrayList<>();
+            long now = System.currentTimeMillis();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(nodesFolder, "*.node")) {
+                for (Path file : files) {
+                    Record record = read(file);
+                    if (record == null) {
+                        continue;
+                    }
+                    if (record.expiresAt > now) {
+                        nodes.add(record.id);
+                    } else {
+                        Files.deleteIfExists(file);
+                    }
+                }
+            }
+            Collections.sort(nodes);
+            return nodes;
+        });
+    }
+
+    @Override
+    public boolean tryAcquireLease(String jobId, String nodeId, long ttl) throws IOException {
+        return withLock(() -> {
+            long now = System.currentTimeMillis();
+            Path file = findLeaseFile(jobId, now);
+            Lease lease = readLease(file);
+            if (lease != null && lease.jobId.equals(jobId) && lease.expiresAt > now && !lease.holder.equals(nodeId)) {
+                return false;
+            }
+            writeLease(file, jobId, nodeId, now + ttl);
+            return true;
+        });
+    }
+
+    @Override
+    public void releaseLease(String jobId, String nodeId) throws IOException {
+        withLock(() -> {
+            Path file = findLeaseFile(jobId, System.currentTimeMillis());
+            Lease lease = readLease(file);
+            if (lease != null && lease.jobId.equals(jobId) && lease.holder.equals(nodeId)) {
+                writeLease(file, jobId, nodeId, 0);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public String getLeaseHolder(String jobId) throws IOException {
+        return withLock(() -> {
+            long now = System.currentTimeMillis();
+            Lease lease = readLease(findLeaseFile(jobId, now));
+            return lease != null && lease.jobId.equals(jobId) && lease.expiresAt > now ? lease.holder : null;
+        });
+    }
+
+    /**
+     * A method that runs the operation while holding both the JVM-local lock and the file lock shared with other processes.
+     * Both are needed, because a file lock cannot be acquired twice by the same JVM.
+     */
+    private <T> T withLock(LockedOperation<T> operation) throws IOException {
+        synchronized (localLock) {
+            try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                FileLock lock = channel.lock();
+                try {
+                    return operation.run();
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    private void write(Path file, String id, long expiresAt) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tmp, (id + "\n" + expiresAt).getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * A method that finds the lease file of the job in the chain of files sharing the hash of its id: the file already holding
+     * the job, otherwise the first file with an expired lease of another job, otherwise the first unused file.
+     */
+    private Path findLeaseFile(String jobId, long now) throws IOException {
+        String prefix = leaseFilePrefix(jobId);
+        Path free = null;
+        for (int i = 0; ; i++) {
+            Path file = leasesFolder.resolve(i == 0 ? prefix + ".lease" : prefix + "-" + i + ".lease");
+            Lease lease = readLease(file);
+            if (lease == null) {
+                return free != null ? free : file;
+            }
+            if (lease.jobId.equals(jobId)) {
+                return file;
+            }
+            if (free == null && lease.expiresAt <= now) {
+                free = file;
+            }
+        }
+    }
+
+    private void writeLease(Path file, String jobId, String nodeId, long expiresAt) throws IOException {
+        write(file, jobId + "\n" + nodeId, expiresAt);
+    }
+
+    private Lease readLease(Path file) throws IOException {
+        Record record = read(file);
+        if (record == null) {
+            return null;
+        }
+        int newLine = record.id.lastIndexOf('\n');
+        if (newLine < 0) {
+            System.out.println("Corrupted lease file " + file + ", ignoring it");
+            return null;
+        }
+        return new Lease(record.id.substring(0, newLine), record.id.substring(newLine + 1), record.expiresAt);
+    }
+
+    private Record read(Path file) throws IOException {
+        try {
+            String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            int newLine = content.lastIndexOf('\n');
+            if (newLine < 0) {
+                return null;
+            }
+            return new Record(content.substring(0, newLine), Long.parseLong(content.substring(newLine + 1).trim()));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (NumberFormatException e) {
+            System.out.println("Corrupted coordination file " + file + ", ignoring it");
+            return null;
+        }
+    }
+
+    /**
+     * File names are derived from hashes, as node and job ids (e.g. URLs) may contain characters not allowed in file names.
+     * The full node id is stored inside the node file, the full job id and the holder inside the lease file.
+     */
+    private String fileName(String nodeId) {
+        return String.format("%016x", Hashing.fnv1a64(nodeId)) + ".node";
+    }
+
+    String leaseFilePrefix(String jobId) {
+        return String.format("%016x", Hashing.fnv1a64(jobId));
+    }
+
+    private interface LockedOperation<T> {
+        T run() throws IOException;
+    }
+
+    private static class Lease {
+        private final String jobId;
+        private final String holder;
+        private final long expiresAt;
+
+        private Lease(String jobId, String holder, long expiresAt) {
+            this.jobId = jobId;
+            this.holder = holder;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static class Record {
+        private final String id;
+        private final long expiresAt;
+
+        private Record(String id, long expiresAt) {
+            this.id = id;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
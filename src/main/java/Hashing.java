@@ -0,0 +1,25 @@
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A small utility for fast, non-cryptographic 64-bit hashing of strings. It is used wherever a compact fingerprint
+ * of a string is needed: selector results, snapshots, generated URLs, hash ring positions and coordination file names.
+ */
+final class Hashing {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private Hashing() {
+    }
+
+    /**
+     * A method that computes a 64-bit FNV-1a hash of the UTF-8 bytes of the given string.
+     */
+    static long fnv1a64(String value) {
+        long hash = FNV_OFFSET;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
@@ -5,6 +5,7 @@ import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 
 import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.FileSystems;
@@ -15,6 +16,7 @@ import java.util.*;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 public class HtmlScraper {
     private Document document;
@@ -27,6 +29,9 @@ public class HtmlScraper {
     private ArrayList<String> hyperlinks;
     private ArrayList<String> selectorsResult;
     private boolean containsGoodValues = false;
+    private RobotsCache robotsCache;
+    private DiskResponseCache responseCache;
+    private HtmlUnitRenderer renderer;
 
     /**
      * TYPE is an enum which specifies whether we want to scrape elements with, or without a tag.
@@ -84,6 +89,48 @@ public class HtmlScraper {
         return this;
     }
 
+    /**
+     * A method for making the scraper respect robots.txt. Before every connection, the final URL is checked against
+     * the robots.txt of its host, and disallowed URLs are not downloaded. Pages are requested with the user agent of the cache,
+     * and fetches from one host are spaced by its crawl delay. The cache can be shared between many scrapers.
+     */
+    public HtmlScraper setRobotsCache(RobotsCache robotsCache) {
+        this.robotsCache = robotsCache;
+        return this;
+    }
+
+    public RobotsCache getRobotsCache() {
+        return robotsCache;
+    }
+
+    /**
+     * A method for making the scraper use a persistent response cache. Stored responses are revalidated with
+     * If-None-Match/If-Modified-Since, so unchanged pages are not downloaded again, even after a restart.
+     * If the cache is in the cache-only mode, the scraper never connects to the network, not even for robots.txt.
+     */
+    public HtmlScraper setResponseCache(DiskResponseCache responseCache) {
+        this.responseCache = responseCache;
+        return this;
+    }
+
+    public DiskResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * A method for scraping JavaScript-rendered webpages. With a renderer, the page is loaded in a headless browser,
+     * its scripts are executed, and the selectors and other methods work on the rendered DOM. The renderer (and its pool of browsers)
+     * can be shared between many scrapers. The response cache is not used for rendered pages.
+     */
+    public HtmlScraper setRenderer(HtmlUnitRenderer renderer) {
+        this.renderer = renderer;
+        return this;
+    }
+
+    public HtmlUnitRenderer getRenderer() {
+        return renderer;
+    }
+
     public HtmlScraper addSubfolder(String subfolder) {
         this.subfolders.add(subfolder);
         return this;
@@ -436,15 +483,51 @@ public class HtmlScraper {
      */
     private void finalizeAndConnect() {
         String finalUrl = buildUrl();
+        // a replay never touches the network, so robots.txt is neither downloaded nor needed for stored responses
+        if (robotsCache != null && !isReplaying() && !robotsCache.isAllowed(finalUrl)) {
+            System.out.println("URL " + finalUrl + " is disallowed by robots.txt");
+            this.document = Document.createShell(finalUrl);
+            return;
+        }
+        if (robotsCache != null && !isReplaying()) {
+            try {
+                robotsCache.awaitCrawlDelay(finalUrl);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                System.out.println("Interrupted while waiting for the crawl delay of " + finalUrl);
+                this.document = Document.createShell(finalUrl);
+                return;
+            }
+        }
         connect(finalUrl);
     }
 
+    /**
+     * A method that checks whether the document is served only from a response cache in the cache-only mode.
+     */
+    private boolean isReplaying() {
+        return renderer == null && responseCache != null && responseCache.isCacheOnly();
+    }
+
     /**
      * A method that connects to the given URL, and gets the document, which contains the HTML code
      * along with all elements of the website
      */
     private void connect(String finalUrl) {
-        Connection connection = Jsoup.connect(finalUrl).timeout(10000);
+        if (renderer != null) {
+            try {
+                this.document = renderer.render(finalUrl);
+            } catch (IOException e) {
+                System.out.println("Problem rendering " + finalUrl);
+                e.printStackTrace();
+            }
+            return;
+        }
+        if (responseCache != null) {
+            connectCached(finalUrl);
+            return;
+        }
+        Connection connection = newConnection(finalUrl);
         try {
             this.document = connection.get();
         } catch (IOException e) {
@@ -453,6 +536,78 @@ public class HtmlScraper {
         }
     }
 
+    /**
+     * A method that connects to the given URL through the response cache. A stored response is sent as a conditional request,
+     * and reused if the server answers 304 Not Modified, or if the server cannot be reached at all.
+     * New responses are stored in the cache. In the cache-only mode, only the stored response is used.
+     */
+    private void connectCached(String finalUrl) {
+        DiskResponseCache.CachedResponse cached = responseCache.get(finalUrl);
+        if (responseCache.isCacheOnly()) {
+            if (cached == null) {
+                System.out.println("No cached response for " + finalUrl + " has been found");
+                this.document = Document.createShell(finalUrl);
+            } else {
+                this.document = parseCached(cached, finalUrl);
+            }
+            return;
+        }
+
+        Connection connection = newConnection(finalUrl).ignoreHttpErrors(true);
+        if (cached != null && cached.getEtag() != null) {
+            connection.header("If-None-Match", cached.getEtag());
+        }
+        if (cached != null && cached.getLastModified() != null) {
+            connection.header("If-Modified-Since", cached.getLastModified());
+        }
+        try {
+            Connection.Response response = connection.execute();
+            int status = response.statusCode();
+            if (status == 304 && cached != null) {
+                this.document = parseCached(cached, finalUrl);
+            } else if (status >= 200 && status < 300) {
+                this.document = response.parse();
+                responseCache.put(finalUrl, response.bodyAsBytes(), response.charset(),
+                        response.header("ETag"), response.header("Last-Modified"));
+            } else if (cached != null) {
+                System.out.println("Status " + status + " on " + finalUrl + ", using the cached response");
+                this.document = parseCached(cached, finalUrl);
+            } else {
+                System.out.println("Problem instantiating an HtmlScraper on " + finalUrl + ", status " + status);
+            }
+        } catch (IOException e) {
+            if (cached != null) {
+                System.out.println("Unable to connect to " + finalUrl + ", using the cached response");
+                this.document = parseCached(cached, finalUrl);
+            } else {
+                System.out.println("Problem instantiating an HtmlScraper on " + buildUrl());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * A method that creates a connection to the given URL. With a robots cache, the scraper identifies itself
+     * by the same user agent, whose robots.txt rules it follows.
+     */
+    private Connection newConnection(String finalUrl) {
+        Connection connection = Jsoup.connect(finalUrl).timeout(10000);
+        if (robotsCache != null) {
+            connection.userAgent(robotsCache.getUserAgent());
+        }
+        return connection;
+    }
+
+    private Document parseCached(DiskResponseCache.CachedResponse cached, String finalUrl) {
+        try {
+            return Jsoup.parse(new ByteArrayInputStream(cached.getBody()), cached.getCharset(), finalUrl);
+        } catch (IOException e) {
+            System.out.println("Unable to parse the cached response for " + finalUrl);
+            e.printStackTrace();
+            return Document.createShell(finalUrl);
+        }
+    }
+
     /**
      * A method that builds the full URL from the given URL, subfolders, and inputs with values
      */
@@ -495,6 +650,35 @@ public class HtmlScraper {
         }
     }
 
+    /**
+     * A method for seeding scrapers from a sitemap. The sitemap (or sitemap index, optionally gzipped) is streamed,
+     * and for every URL in it a new HtmlScraper is created and passed to the consumer, so the URLs are never held
+     * in memory all at once.
+     */
+    public static void fromSitemap(String sitemapUrl, Consumer<HtmlScraper> consumer) {
+        new SitemapParser().fetch(sitemapUrl, url -> consumer.accept(new HtmlScraper(url)));
+    }
+
+    /**
+     * A method for seeding scrapers from all sitemaps listed in the robots.txt of the given site.
+     * URLs disallowed by the robots.txt are skipped, and every created HtmlScraper respects the robots.txt
+     * on its own connections as well.
+     */
+    public static void fromRobotsSitemaps(String siteUrl, RobotsCache robotsCache, Consumer<HtmlScraper> consumer) {
+        SitemapParser parser = new SitemapParser().setUserAgent(robotsCache.getUserAgent());
+        try {
+            for (String sitemapUrl : robotsCache.getSitemaps(siteUrl)) {
+                parser.fetch(sitemapUrl, url -> {
+                    if (robotsCache.isAllowed(url)) {
+                        consumer.accept(new HtmlScraper(url).setRobotsCache(robotsCache));
+                    }
+                });
+            }
+        } catch (IOException e) {
+            System.out.println("Unable to read sitemaps of " + siteUrl + ": " + e.getMessage());
+        }
+    }
+
     /**
      * A method for scraping-by-selectors automatization.
      * The user specifies a log file path, and how often the webpage scraping should happen. Then, the scraping will happen every given amount of time.
@@ -509,6 +693,53 @@ public class HtmlScraper {
         automatize(miliseconds, r);
     }
 
+    /**
+     * A method for incremental scraping-by-selectors automatization. It works like automatizeSelectors, but only the changes
+     * since the previous run are saved into the log file - one line per added, removed or changed item, in the format
+     * "TYPE\tkeyHash\tvalue", with backslashes, tabs and line breaks in the value escaped as \\, \t, \n and \r.
+     * Runs without any change write nothing. Items are identified by their whole content.
+     */
+    public void automatizeSelectorChanges(String path, int days, int hours, int minutes, int seconds, int ms) {
+        automatizeSelectorChanges(path, new SelectorDiff(), days, hours, minutes, seconds, ms);
+    }
+
+    /**
+     * A method for incremental scraping-by-selectors automatization, with a custom SelectorDiff.
+     * A SelectorDiff with a key extractor reports modified items as changed, instead of removed and added.
+     */
+    public void automatizeSelectorChanges(String path, SelectorDiff diff, int days, int hours, int minutes, int seconds, int ms) {
+        long miliseconds = calculateMiliseconds(days, hours, minutes, seconds, ms);
+        Path logFile = getPath(path);
+        createPath(logFile);
+        Runnable r = () -> writeSelectorChanges(logFile, diff);
+        automatize(miliseconds, r);
+    }
+
+    /**
+     * A method for scraping-by-selectors automatization in a cluster. Every node of the cluster calls this method with the same arguments,
+     * and the scraping happens only on the node which the host of the URL is assigned to, see ClusterNode.automatize.
+     * The log file is written by the node running the job, so it should be on a shared folder, or be collected from all nodes.
+     */
+    public void automatizeSelectors(String path, ClusterNode node, int days, int hours, int minutes, int seconds, int ms) {
+        long miliseconds = calculateMiliseconds(days, hours, minutes, seconds, ms);
+        Path logFile = getPath(path);
+        createPath(logFile);
+        String finalUrl = buildUrl();
+        node.automatize("selectors|" + finalUrl + "|" + path, finalUrl, miliseconds, createRunnableForSelectors(logFile));
+    }
+
+    /**
+     * A method for periodical full HTML document scraping in a cluster. Every node of the cluster calls this method with the same arguments,
+     * and the snapshots are taken only on the node which the host of the URL is assigned to, see ClusterNode.automatize.
+     */
+    public void htmlSnapshots(String targetFolder, ClusterNode node, int days, int hours, int minutes, int seconds, int ms) {
+        long miliseconds = calculateMiliseconds(days, hours, minutes, seconds, ms);
+        Path target = getPath(targetFolder);
+        createPath(target);
+        String finalUrl = buildUrl();
+        node.automatize("snapshots|" + finalUrl + "|" + targetFolder, finalUrl, miliseconds, createRunnableForSnapshots(target));
+    }
+
     /**
      * A method for periodical full HTML document scraping. An HTML snapshot will be created after given period of time.
      * Method accepts a folder path as an argument, and if no folder is found on this path, it will be automatically created.
@@ -523,6 +754,41 @@ public class HtmlScraper {
         automatize(miliseconds, r);
     }
 
+    /**
+     * A method for adaptive scraping-by-selectors automatization. Instead of a fixed period, the scheduler tunes how often
+     * the webpage is scraped, based on how often the selector results have been changing.
+     * Like in automatizeSelectorChanges, only the changes since the previous run are saved into the log file.
+     */
+    public AdaptiveScheduler.Target automatizeSelectors(String path, AdaptiveScheduler scheduler) {
+        Path logFile = getPath(path);
+        createPath(logFile);
+        SelectorDiff diff = new SelectorDiff();
+        return scheduler.schedule(buildUrl(), () -> writeSelectorChanges(logFile, diff));
+    }
+
+    /**
+     * A method for adaptive HTML snapshotting. Instead of a fixed period, the scheduler tunes how often the snapshot is taken,
+     * based on how often the HTML document has been changing. A new snapshot file is created only if the document has changed
+     * since the previous snapshot (compared by a hash of its content).
+     */
+    public AdaptiveScheduler.Target htmlSnapshots(String targetFolder, AdaptiveScheduler scheduler) {
+        Path target = getPath(targetFolder);
+        createPath(target);
+        long[] previousHash = {0};
+        boolean[] first = {true};
+        return scheduler.schedule(buildUrl(), () -> {
+            String html = getHtml();
+            long hash = Hashing.fnv1a64(html);
+            if (!first[0] && hash == previousHash[0]) {
+                return false;
+            }
+            first[0] = false;
+            previousHash[0] = hash;
+            writeHtml(target, html);
+            return true;
+        });
+    }
+
     /**
      * A method that creates Runnable for HTML snapshotting. This runnable is then triggered every given period of time,
      * by a ScheduledExecutorService.
@@ -535,13 +801,19 @@ public class HtmlScraper {
      * A method for creating a file in the specified folder and writing out the Html-snapshot to this file.
      */
     private void writeHtml(Path targetFolder) {
+        writeHtml(targetFolder, getHtml());
+    }
+
+    /**
+     * A method for creating a file in the specified folder and writing out the given Html-snapshot to this file.
+     */
+    private void writeHtml(Path targetFolder, String html) {
         Timestamp timeStamp = getTimesStamp();
         try {
             String delimeter = FileSystems.getDefault().getSeparator();
             String inputPath = targetFolder + delimeter + timeStamp.toString().replaceAll(" ", "_") + ".html";
             Files.createFile(FileSystems.getDefault().getPath(inputPath));
             BufferedWriter bufferedWriter = new BufferedWriter(new FileWriter(inputPath));
-            String html = getHtml();
 
             bufferedWriter.write(html);
 
@@ -594,6 +866,39 @@ public class HtmlScraper {
         }
     }
 
+    /**
+     * A method for writing out only the changes of the get-by-selectors result to a specified file.
+     * The timestamp is written only if there is at least one change.
+     *
+     * @return true if the selector result has changed since the previous run
+     */
+    private boolean writeSelectorChanges(Path logFile, SelectorDiff diff) {
+        List<String> values = getSelectorsResult();
+        if (values == null) {
+            return false;
+        }
+        List<SelectorChange> changes = diff.update(values);
+        clearSelectorResults();
+        if (changes.isEmpty()) {
+            return false;
+        }
+        Timestamp timeStamp = getTimesStamp();
+        try {
+            BufferedWriter bufferedWriter = new BufferedWriter(new FileWriter(logFile.toString(), true));
+            bufferedWriter.write(timeStamp + "");
+            bufferedWriter.newLine();
+            for (SelectorChange change : changes) {
+                bufferedWriter.write(change.toString());
+                bufferedWriter.newLine();
+            }
+            bufferedWriter.close();
+        } catch (IOException e) {
+            System.out.println("Unable to write a log: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return true;
+    }
+
     /**
      * A method that is used for a path validation, optionally creation of the file/folder on a specified path.
      */
@@ -0,0 +1,289 @@
+import com.gargoylesoftware.htmlunit.BrowserVersion;
+import com.gargoylesoftware.htmlunit.NicelyResynchronizingAjaxController;
+import com.gargoylesoftware.htmlunit.Page;
+import com.gargoylesoftware.htmlunit.SilentCssErrorHandler;
+import com.gargoylesoftware.htmlunit.StringWebResponse;
+import com.gargoylesoftware.htmlunit.TopLevelWindow;
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.WebRequest;
+import com.gargoylesoftware.htmlunit.WebResponse;
+import com.gargoylesoftware.htmlunit.WebResponseData;
+import com.gargoylesoftware.htmlunit.html.HtmlPage;
+import com.gargoylesoftware.htmlunit.util.NameValuePair;
+import com.gargoylesoftware.htmlunit.util.WebConnectionWrapper;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A renderer of JavaScript-heavy webpages, using a pool of headless HtmlUnit browsers. The browsers are created and warmed up
+ * once, when the renderer is created, and then reused for every rendered page, which is much faster than starting a new browser per page.
+ * The execution of JavaScript is bounded, and images, CSS and scripts from other hosts can be blocked, so they are never downloaded.
+ * The rendered DOM is returned as a jsoup Document, so it can be used by an HtmlScraper, see HtmlScraper.setRenderer.
+ */
+public class HtmlUnitRenderer implements Closeable {
+    private static final String[] MEDIA_EXTENSIONS = {".png", ".jpg", ".jpeg", ".gif", ".webp", ".svg", ".ico", ".bmp",
+            ".woff", ".woff2", ".ttf", ".otf", ".eot", ".mp4", ".webm", ".mp3"};
+    private static final String WARM_UP_PAGE = "<html><body><div id='warm-up'></div><script>" +
+            "document.getElementById('warm-up').appendChild(document.createElement('p'));</script></body></html>";
+    private static final PooledClient CLOSED = new PooledClient();
+
+    private final BlockingQueue<PooledClient> pool;
+    private final ArrayList<PooledClient> clients;
+    private volatile long javaScriptTimeout;
+    private volatile long backgroundJavaScriptWait;
+    private volatile boolean blockImages;
+    private volatile boolean blockCss;
+    private volatile boolean blockThirdPartyScripts;
+    private volatile boolean closed;
+
+    /**
+     * @param poolSize the number of browsers, i.e. the number of pages which can be rendered at the same time
+     */
+    public HtmlUnitRenderer(int poolSize) {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("Pool size has to be at least 1");
+        }
+        this.pool = new ArrayBlockingQueue<>(poolSize);
+        this.clients = new ArrayList<>();
+        this.javaScriptTimeout = 5000;
+        this.backgroundJavaScriptWait = 1000;
+        this.blockImages = true;
+        this.blockCss = true;
+        this.blockThirdPartyScripts = false;
+        for (int i = 0; i < poolSize; i++) {
+            PooledClient client = createClient();
+            clients.add(client);
+            pool.add(client);
+        }
+    }
+
+    /**
+     * A method for bounding the execution time (in milliseconds) of a single script on the page.
+     */
+    public HtmlUnitRenderer setJavaScriptTimeout(long javaScriptTimeout) {
+        this.javaScriptTimeout = javaScriptTimeout;
+        return this;
+    }
+
+    /**
+     * A method for specifying how long (in milliseconds) to wait for background JavaScript (timers, AJAX) after the page is loaded.
+     */
+    public HtmlUnitRenderer setBackgroundJavaScriptWait(long backgroundJavaScriptWait) {
+        this.backgroundJavaScriptWait = backgroundJavaScriptWait;
+        return this;
+    }
+
+    /**
+     * A method for blocking images, fonts and other media. Blocked by default.
+     */
+    public HtmlUnitRenderer setBlockImages(boolean blockImages) {
+        this.blockImages = blockImages;
+        return this;
+    }
+
+    /**
+     * A method for blocking stylesheets. Blocked by default.
+     */
+    public HtmlUnitRenderer setBlockCss(boolean blockCss) {
+        this.blockCss = blockCss;
+        for (PooledClient client : clients) {
+            synchronized (client) {
+                client.webClient.getOptions().setCssEnabled(!blockCss);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * A method for blocking scripts loaded from other hosts than the rendered page (analytics, ads...). Allowed by default.
+     * Scripts are recognized by the request the browser makes for a script element, not by the extension of their URL.
+     */
+    public HtmlUnitRenderer setBlockThirdPartyScripts(boolean blockThirdPartyScripts) {
+        this.blockThirdPartyScripts = blockThirdPartyScripts;
+        return this;
+    }
+
+    /**
+     * A method that renders the page on the given URL, including its JavaScript, and returns the resulting DOM.
+     * If all browsers are busy, the method waits for the first free one.
+     *
+     * @throws IOException if the page cannot be loaded, or the renderer has been closed (also while waiting for a browser)
+     */
+    public Document render(String url) throws IOException {
+        if (closed) {
+            throw new IOException("The renderer is closed");
+        }
+        PooledClient client;
+        try {
+            client = pool.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a browser", e);
+        }
+        if (closed) {
+            // pass the wake-up on to the next waiting thread
+            pool.offer(client);
+            throw new IOException("The renderer is closed");
+        }
+        try {
+            synchronized (client) {
+                client.pageHost = new URL(url).getHost();
+                client.webClient.setJavaScriptTimeout(javaScriptTimeout);
+                Page page = client.webClient.getPage(url);
+                String html;
+                if (page instanceof HtmlPage) {
+                    client.webClient.waitForBackgroundJavaScript(backgroundJavaScriptWait);
+                    html = ((HtmlPage) page).asXml();
+                } else {
+                    html = page.getWebResponse().getContentAsString();
+                }
+                return Jsoup.parse(html, url);
+            }
+        } finally {
+            reset(client);
+            pool.offer(client);
+        }
+    }
+
+    /**
+     * A method that closes all browsers of the pool. Renders which are in progress are finished first,
+     * threads waiting for a browser and all later renders fail with an IOException.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        pool.clear();
+        pool.offer(CLOSED);
+        for (PooledClient client : clients) {
+            synchronized (client) {
+                client.webClient.close();
+            }
+        }
+    }
+
+    private PooledClient createClient() {
+        PooledClient client = new PooledClient();
+        client.webClient = createWebClient(client);
+        return client;
+    }
+
+    /**
+     * A method that creates a new browser and warms it up, by running a small script in it, so the JavaScript engine
+     * is initialized before the first real page.
+     */
+    private WebClient createWebClient(PooledClient client) {
+        WebClient webClient = new WebClient(BrowserVersion.CHROME);
+        webClient.getOptions().setJavaScriptEnabled(true);
+        webClient.getOptions().setCssEnabled(!blockCss);
+        webClient.getOptions().setThrowExceptionOnScriptError(false);
+        webClient.getOptions().setThrowExceptionOnFailingStatusCode(false);
+        webClient.getOptions().setPrintContentOnFailingStatusCode(false);
+        webClient.getOptions().setDownloadImages(false);
+        webClient.getOptions().setTimeout(10000);
+        webClient.setCssErrorHandler(new SilentCssErrorHandler());
+        webClient.setIncorrectnessListener((message, origin) -> { });
+        webClient.setAjaxController(new NicelyResynchronizingAjaxController());
+
+        new BlockingConnection(webClient, client);
+        try {
+            StringWebResponse warmUp = new StringWebResponse(WARM_UP_PAGE, new URL("http://localhost/"));
+            webClient.loadWebResponseInto(warmUp, webClient.getCurrentWindow());
+            webClient.getPage("about:blank");
+        } catch (IOException e) {
+            System.out.println("Unable to warm up a browser: " + e.getMessage());
+        }
+        return webClient;
+    }
+
+    /**
+     * A method that clears the state left by the last rendered page (running scripts, windows, cookies), so the browser can be reused.
+     */
+    private void reset(PooledClient client) {
+        synchronized (client) {
+            client.pageHost = null;
+            if (closed) {
+                return;
+            }
+            try {
+                for (TopLevelWindow window : new ArrayList<>(client.webClient.getTopLevelWindows())) {
+                    window.getJobManager().removeAllJobs();
+                }
+                client.webClient.getCookieManager().clearCookies();
+                client.webClient.getPage("about:blank");
+                List<TopLevelWindow> windows = new ArrayList<>(client.webClient.getTopLevelWindows());
+                for (int i = 1; i < windows.size(); i++) {
+                    windows.get(i).close();
+                }
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Unable to reset a browser, creating a new one: " + e.getMessage());
+                client.webClient.close();
+                client.webClient = createWebClient(client);
+            }
+        }
+    }
+
+    private boolean isBlocked(WebRequest request, String pageHost) {
+        URL url = request.getUrl();
+        String path = url.getPath().toLowerCase(Locale.ROOT);
+        if (blockImages) {
+            for (String extension : MEDIA_EXTENSIONS) {
+                if (path.endsWith(extension)) {
+                    return true;
+                }
+            }
+        }
+        if (blockCss && path.endsWith(".css")) {
+            return true;
+        }
+        return blockThirdPartyScripts && pageHost != null && isScript(request) && !pageHost.equalsIgnoreCase(url.getHost());
+    }
+
+    /**
+     * A method that checks whether the request loads a script element. The browser marks such requests
+     * with the Sec-Fetch-Dest header, so scripts are recognized even on URLs without the .js extension.
+     */
+    private boolean isScript(WebRequest request) {
+        return "script".equalsIgnoreCase(request.getAdditionalHeader("Sec-Fetch-Dest"))
+                || request.getUrl().getPath().toLowerCase(Locale.ROOT).endsWith(".js");
+    }
+
+    /**
+     * A browser of the pool, along with the host of the page it is currently rendering.
+     */
+    private static class PooledClient {
+        private WebClient webClient;
+        private volatile String pageHost;
+    }
+
+    /**
+     * A web connection which answers the blocked requests with an empty response, instead of downloading them.
+     * It installs itself as the connection of the given browser.
+     */
+    private class BlockingConnection extends WebConnectionWrapper {
+        private final PooledClient client;
+
+        private BlockingConnection(WebClient webClient, PooledClient client) {
+            super(webClient);
+            this.client = client;
+        }
+
+        @Override
+        public WebResponse getResponse(WebRequest request) throws IOException {
+            if (isBlocked(request, client.pageHost)) {
+                List<NameValuePair> headers = new ArrayList<>();
+                headers.add(new NameValuePair("Content-Type", "text/plain"));
+                return new WebResponse(new WebResponseData(new byte[0], 200, "OK", headers), request, 0);
+            }
+            return super.getResponse(request);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A cache of parsed robots.txt files, one per host. Every robots.txt is downloaded and compiled only once,
+ * and is kept until its time-to-live expires. The cache is thread-safe and can be shared between many HtmlScrapers.
+ */
+public class RobotsCache {
+    private final String userAgent;
+    private final long ttl;
+    private final ConcurrentHashMap<String, CachedRobots> cache;
+    private final ConcurrentHashMap<String, Long> nextFetchAt;
+
+    /**
+     * @param userAgent the product token used for choosing the robots.txt group, and sent as the User-Agent header
+     * @param ttl       how long (in milliseconds) a downloaded robots.txt is kept
+     */
+    public RobotsCache(String userAgent, long ttl) {
+        this.userAgent = userAgent;
+        this.ttl = ttl;
+        this.cache = new ConcurrentHashMap<>();
+        this.nextFetchAt = new ConcurrentHashMap<>();
+    }
+
+    public String getUserAgent() {
+        return userAgent;
+    }
+
+    /**
+     * A method that checks whether the given absolute URL may be crawled according to the robots.txt of its host.
+     */
+    public boolean isAllowed(String url) {
+        try {
+            URL parsed = new URL(url);
+            String path = parsed.getFile();
+            return getRobots(parsed).isAllowed(path.isEmpty() ? "/" : path);
+        } catch (MalformedURLException e) {
+            System.out.println("Unable to check robots.txt for malformed URL " + url);
+            return false;
+        }
+    }
+
+    /**
+     * A method that returns the sitemap URLs listed in the robots.txt of the host of the given URL.
+     */
+    public List<String> getSitemaps(String url) throws MalformedURLException {
+        return getRobots(new URL(url)).getSitemaps();
+    }
+
+    /**
+     * A method that returns the crawl delay (in milliseconds) for the host of the given URL, or -1 if there is none.
+     */
+    public long getCrawlDelay(String url) throws MalformedURLException {
+        return getRobots(new URL(url)).getCrawlDelay();
+    }
+
+    /**
+     * A method that waits until the page on the given URL may be fetched according to the crawl delay of its host.
+     * Every call reserves the next free slot of the host, so fetches of all scrapers sharing this cache are spaced
+     * at least the crawl delay apart. Hosts without a crawl delay are never waited for.
+     */
+    public void awaitCrawlDelay(String url) throws InterruptedException {
+        URL parsed;
+        try {
+            parsed = new URL(url);
+        } catch (MalformedURLException e) {
+            return;
+        }
+        long delay = getRobots(parsed).getCrawlDelay();
+        if (delay <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long slot = nextFetchAt.merge(hostKey(parsed), now + delay, (previous, first) -> Math.max(previous, now) + delay) - delay;
+        if (slot > now) {
+            Thread.sleep(slot - now);
+        }
+    }
+
+    public RobotsCache clear() {
+        cache.clear();
+        nextFetchAt.clear();
+        return this;
+    }
+
+    /**
+     * A method that returns the cached robots.txt for the host of the URL, downloading it if it is missing or expired.
+     * The thread which installs a new entry into the map downloads the robots.txt outside of any map operation,
+     * concurrent requests for the same host wait for that single download, and other hosts are not blocked at all.
+     */
+    private RobotsTxt getRobots(URL url) {
+        String hostKey = hostKey(url);
+        while (true) {
+            CachedRobots cached = cache.get(hostKey);
+            if (cached == null || cached.isExpired()) {
+                CachedRobots fresh = new CachedRobots(hostKey);
+                boolean installed = cached == null
+                        ? cache.putIfAbsent(hostKey, fresh) == null
+                        : cache.replace(hostKey, cached, fresh);
+                if (!installed) {
+                    continue;
+                }
+                fresh.download.run();
+                cached = fresh;
+            }
+            return cached.get();
+        }
+    }
+
+    private static String hostKey(URL url) {
+        return url.getProtocol() + "://" + url.getAuthority();
+    }
+
+    /**
+     * A method that downloads and parses a robots.txt file. A missing robots.txt (4xx) allows everything,
+     * a server error or an unreachable host disallows everything until the entry expires.
+     */
+    RobotsTxt download(String hostKey) {
+        String robotsUrl = hostKey + "/robots.txt";
+        try {
+            Connection.Response response = Jsoup.connect(robotsUrl)
+                    .userAgent(userAgent)
+                    .timeout(10000)
+                    .ignoreContentType(true)
+                    .ignoreHttpErrors(true)
+                    .execute();
+            int status = response.statusCode();
+            if (status >= 200 && status < 300) {
+                return RobotsTxt.parse(response.body(), userAgent);
+            } else if (status >= 400 && status < 500) {
+                return RobotsTxt.allowAll();
+            }
+            System.out.println("Server error " + status + " while downloading " + robotsUrl);
+        } catch (IOException e) {
+            System.out.println("Unable to download " + robotsUrl + ": " + e.getMessage());
+        }
+        return RobotsTxt.disallowAll();
+    }
+
+    /**
+     * A cache entry holding the (possibly still running) download of one robots.txt. The entry expires
+     * a time-to-live after the download has finished.
+     */
+    private class CachedRobots {
+        private final FutureTask<RobotsTxt> download;
+        private volatile long expiresAt;
+
+        private CachedRobots(String hostKey) {
+            this.download = new FutureTask<>(() -> {
+                try {
+                    return download(hostKey);
+                } finally {
+                    // a failed download expires too, so the host is not disallowed forever
+                    expiresAt = System.currentTimeMillis() + ttl;
+                }
+            });
+            this.expiresAt = Long.MAX_VALUE;
+        }
+
+        private boolean isExpired() {
+            return download.isDone() && expiresAt <= System.currentTimeMillis();
+        }
+
+        private RobotsTxt get() {
+            try {
+                return download.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return RobotsTxt.disallowAll();
+            } catch (ExecutionException e) {
+                System.out.println("Unable to download robots.txt: " + e.getCause().getMessage());
+                return RobotsTxt.disallowAll();
+            }
+        }
+    }
+}
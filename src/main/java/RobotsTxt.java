@@ -0,0 +1,212 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * A parsed robots.txt file for one user agent. The allow/disallow rules of the matching group are compiled
+ * once when the file is parsed, so checking a URL path is only a walk over the precompiled rules.
+ * Matching follows the usual robots.txt semantics: the longest matching rule wins, and on a tie the allow rule wins.
+ * The rules support '*' wildcards and a trailing '$' end anchor.
+ */
+public class RobotsTxt {
+    private final ArrayList<Rule> rules;
+    private final ArrayList<String> sitemaps;
+    private final long crawlDelay;
+
+    private RobotsTxt(ArrayList<Rule> rules, ArrayList<String> sitemaps, long crawlDelay) {
+        this.rules = rules;
+        this.sitemaps = sitemaps;
+        this.crawlDelay = crawlDelay;
+    }
+
+    /**
+     * A method that returns a robots.txt allowing everything, used e.g. when the site has no robots.txt.
+     */
+    public static RobotsTxt allowAll() {
+        return new RobotsTxt(new ArrayList<>(), new ArrayList<>(), -1);
+    }
+
+    /**
+     * A method that returns a robots.txt disallowing everything, used e.g. when the robots.txt is unreachable.
+     */
+    public static RobotsTxt disallowAll() {
+        ArrayList<Rule> rules = new ArrayList<>();
+        rules.add(new Rule("/", false));
+        return new RobotsTxt(rules, new ArrayList<>(), -1);
+    }
+
+    /**
+     * A method that parses the content of a robots.txt file.
+     * Only the rules of the group matching the given user agent are kept. If no group names the user agent,
+     * the rules of the '*' group are used.
+     *
+     * @param userAgent the product token of the crawler, e.g. "MyScraper"
+     */
+    public static RobotsTxt parse(String content, String userAgent) {
+        String agent = userAgent.toLowerCase(Locale.ROOT);
+        ArrayList<Rule> specificRules = new ArrayList<>();
+        ArrayList<Rule> wildcardRules = new ArrayList<>();
+        ArrayList<String> sitemaps = new ArrayList<>();
+        long specificDelay = -1;
+        long wildcardDelay = -1;
+        boolean specificGroupFound = false;
+
+        boolean inSpecificGroup = false;
+        boolean inWildcardGroup = false;
+        boolean readingAgents = false;
+
+        for (String rawLine : content.split("\r\n|\r|\n")) {
+            int comment = rawLine.indexOf('#');
+            String line = (comment >= 0 ? rawLine.substring(0, comment) : rawLine).trim();
+            int colon = line.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            String key = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+
+            if (key.equals("user-agent")) {
+                if (!readingAgents) {
+                    inSpecificGroup = false;
+                    inWildcardGroup = false;
+                    readingAgents = true;
+                }
+                String groupAgent = value.toLowerCase(Locale.ROOT);
+                if (groupAgent.equals("*")) {
+                    inWildcardGroup = true;
+                } else if (!groupAgent.isEmpty() && agent.contains(groupAgent)) {
+                    inSpecificGroup = true;
+                    specificGroupFound = true;
+                }
+                continue;
+            }
+            if (key.equals("sitemap")) {
+                if (!value.isEmpty()) {
+                    sitemaps.add(value);
+                }
+                continue;
+            }
+            readingAgents = false;
+
+            if (key.equals("allow") || key.equals("disallow")) {
+                if (value.isEmpty()) {
+                    continue;
+                }
+                Rule rule = new Rule(value, key.equals("allow"));
+                if (inSpecificGroup) {
+                    specificRules.add(rule);
+                }
+                if (inWildcardGroup) {
+                    wildcardRules.add(rule);
+                }
+            } else if (key.equals("crawl-delay")) {
+                long delay = parseCrawlDelay(value);
+                if (inSpecificGroup) {
+                    specificDelay = delay;
+                }
+                if (inWildcardGroup) {
+                    wildcardDelay = delay;
+                }
+            }
+        }
+
+        ArrayList<Rule> rules = specificGroupFound ? specificRules : wildcardRules;
+        rules.sort(Comparator.comparingInt((Rule r) -> r.length).reversed().thenComparing(r -> !r.allow));
+        return new RobotsTxt(rules, sitemaps, specificGroupFound ? specificDelay : wildcardDelay);
+    }
+
+    /**
+     * A method that checks whether the given path (including the query string) may be crawled.
+     */
+    public boolean isAllowed(String path) {
+        if (path == null || path.isEmpty()) {
+            path = "/";
+        }
+        if (path.equals("/robots.txt")) {
+            return true;
+        }
+        for (Rule rule : rules) {
+            if (rule.matches(path)) {
+                return rule.allow;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A method that returns the sitemap URLs listed in the robots.txt file.
+     */
+    public List<String> getSitemaps() {
+        return sitemaps;
+    }
+
+    /**
+     * A method that returns the crawl delay in milliseconds, or -1 if the robots.txt file does not specify one.
+     */
+    public long getCrawlDelay() {
+        return crawlDelay;
+    }
+
+    private static long parseCrawlDelay(String value) {
+        try {
+            return (long) (Double.parseDouble(value) * 1000);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * A single allow/disallow rule. Rules without wildcards are matched with a plain prefix check,
+     * the others are compiled into a regular expression once.
+     */
+    private static class Rule {
+        private final String prefix;
+        private final Pattern pattern;
+        private final boolean allow;
+        private final int length;
+
+        private Rule(String path, boolean allow) {
+            this.allow = allow;
+            this.length = path.length();
+            if (path.indexOf('*') < 0 && !path.endsWith("$")) {
+                this.prefix = path;
+                this.pattern = null;
+            } else {
+                this.prefix = null;
+                this.pattern = compile(path);
+            }
+        }
+
+        private boolean matches(String path) {
+            if (pattern == null) {
+                return path.startsWith(prefix);
+            }
+            return pattern.matcher(path).lookingAt();
+        }
+
+        private static Pattern compile(String path) {
+            boolean anchored = path.endsWith("$");
+            String body = anchored ? path.substring(0, path.length() - 1) : path;
+            StringBuilder regex = new StringBuilder();
+            int start = 0;
+            for (int i = 0; i < body.length(); i++) {
+                if (body.charAt(i) == '*') {
+                    if (i > start) {
+                        regex.append(Pattern.quote(body.substring(start, i)));
+                    }
+                    regex.append(".*");
+                    start = i + 1;
+                }
+            }
+            if (start < body.length()) {
+                regex.append(Pattern.quote(body.substring(start)));
+            }
+            if (anchored) {
+                regex.append("$");
+            }
+            return Pattern.compile(regex.toString(), Pattern.DOTALL);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * A single change of the selector results between two scheduled runs, as produced by SelectorDiff.
+ * Removed items carry only the hash of their key, because the previous results are kept in a hashed form.
+ */
+public class SelectorChange {
+    private final TYPE type;
+    private final long keyHash;
+    private final String value;
+
+    /**
+     * TYPE is an enum which specifies what happened to the item since the previous run.
+     1. ADDED, the item has appeared
+     2. REMOVED, the item has disappeared
+     3. CHANGED, the item with the same key has a different content
+     */
+    public enum TYPE {
+        ADDED, REMOVED, CHANGED
+    }
+
+    public SelectorChange(TYPE type, long keyHash, String value) {
+        this.type = type;
+        this.keyHash = keyHash;
+        this.value = value;
+    }
+
+    public TYPE getType() {
+        return type;
+    }
+
+    public long getKeyHash() {
+        return keyHash;
+    }
+
+    /**
+     * A method that returns the current content of the item, or null for a removed item.
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * A method that formats the change as a tab separated log line: type, key hash, value.
+     * Backslashes, tabs and line breaks in the value are escaped as \\, \t, \n and \r, so the line always has
+     * at most three fields, and a multi-line item (e.g. the inner HTML of an element) stays on one line.
+     */
+    @Override
+    public String toString() {
+        String hash = String.format("%016x", keyHash);
+        return value == null ? type + "\t" + hash : type + "\t" + hash + "\t" + escape(value);
+    }
+
+    private static String escape(String value) {
+        StringBuilder builder = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                default:
+                    builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,78 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A class for computing the delta of selector results between scheduled runs.
+ * The previous result set is kept only as 64-bit hashes (key hash -> content hash), so even large listings
+ * take a few bytes per item. Every update returns only the added, removed and changed items.
+ *
+ * By default, an item is identified by its whole content, so a modified item is reported as removed and added.
+ * With a key extractor (e.g. returning a product id from the item HTML), a modified item is reported as changed.
+ */
+public class SelectorDiff {
+    private final Function<String, String> keyExtractor;
+    private HashMap<Long, Long> previous;
+
+    public SelectorDiff() {
+        this(Function.identity());
+    }
+
+    public SelectorDiff(Function<String, String> keyExtractor) {
+        this.keyExtractor = keyExtractor;
+    }
+
+    /**
+     * A method that compares the given results with the results of the previous update, and remembers the given ones.
+     * On the first update, every item is reported as added.
+     */
+    public synchronized List<SelectorChange> update(List<String> results) {
+        HashMap<Long, Long> current = new HashMap<>();
+        HashMap<Long, Integer> occurrences = new HashMap<>();
+        ArrayList<SelectorChange> changes = new ArrayList<>();
+
+        for (String item : results) {
+            long keyHash = Hashing.fnv1a64(keyExtractor.apply(item));
+            int occurrence = occurrences.merge(keyHash, 1, Integer::sum) - 1;
+            if (occurrence > 0) {
+                keyHash = mix(keyHash, occurrence);
+            }
+            long contentHash = Hashing.fnv1a64(item);
+            current.put(keyHash, contentHash);
+
+            Long previousContent = previous == null ? null : previous.get(keyHash);
+            if (previousContent == null) {
+                changes.add(new SelectorChange(SelectorChange.TYPE.ADDED, keyHash, item));
+            } else if (previousContent != contentHash) {
+                changes.add(new SelectorChange(SelectorChange.TYPE.CHANGED, keyHash, item));
+            }
+        }
+        if (previous != null) {
+            for (Map.Entry<Long, Long> entry : previous.entrySet()) {
+                if (!current.containsKey(entry.getKey())) {
+                    changes.add(new SelectorChange(SelectorChange.TYPE.REMOVED, entry.getKey(), null));
+                }
+            }
+        }
+        previous = current;
+        return changes;
+    }
+
+    /**
+     * A method that forgets the previous results, so the next update reports every item as added.
+     */
+    public synchronized SelectorDiff reset() {
+        previous = null;
+        return this;
+    }
+
+    private static long mix(long hash, int occurrence) {
+        long mixed = hash ^ (occurrence * 0x9e3779b97f4a7c15L);
+        mixed ^= mixed >>> 33;
+        mixed *= 0xff51afd7ed558ccdL;
+        mixed ^= mixed >>> 33;
+        return mixed;
+    }
+}
@@ -0,0 +1,183 @@
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A streaming parser of sitemaps and sitemap indexes. The sitemap is read element by element,
+ * and every URL is handed to a consumer as soon as it is read, so even sitemaps with 50 000 URLs
+ * (or indexes pointing to many of them) are never held in memory as a whole.
+ * Gzipped sitemaps are detected by their magic bytes, plain text sitemaps (one URL per line) are supported as well.
+ */
+public class SitemapParser {
+    private static final int MAX_INDEX_DEPTH = 5;
+
+    private final XMLInputFactory xmlInputFactory;
+    private String userAgent;
+
+    public SitemapParser() {
+        this.xmlInputFactory = XMLInputFactory.newInstance();
+        this.xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        this.xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        this.xmlInputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+        this.userAgent = "HtmlScraper";
+    }
+
+    public SitemapParser setUserAgent(String userAgent) {
+        this.userAgent = userAgent;
+        return this;
+    }
+
+    /**
+     * A method that downloads the sitemap on the given URL and passes every page URL to the consumer.
+     * If the sitemap is a sitemap index, the nested sitemaps are downloaded and parsed one after another,
+     * after the index itself has been read and its connection closed. The index is small (at most 50 000 sitemap URLs),
+     * so buffering it keeps no connection idle while a slow consumer works through the nested sitemaps.
+     */
+    public void fetch(String sitemapUrl, Consumer<String> urlConsumer) {
+        fetch(sitemapUrl, urlConsumer, new HashSet<>(), 0);
+    }
+
+    private void fetch(String sitemapUrl, Consumer<String> urlConsumer, Set<String> visited, int depth) {
+        if (depth > MAX_INDEX_DEPTH || !visited.add(sitemapUrl)) {
+            return;
+        }
+        ArrayList<String> nestedSitemaps = new ArrayList<>();
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(sitemapUrl).openConnection();
+            connection.setConnectTimeout(10000);
+            connection.setReadTimeout(10000);
+            connection.setRequestProperty("User-Agent", userAgent);
+            connection.setRequestProperty("Accept-Encoding", "gzip");
+            if (connection.getResponseCode() >= 400) {
+                System.out.println("Unable to download sitemap " + sitemapUrl + ", status " + connection.getResponseCode());
+                return;
+            }
+            try (InputStream in = connection.getInputStream()) {
+                parse(in, urlConsumer, nestedSitemaps::add);
+            }
+        } catch (IOException | XMLStreamException e) {
+            System.out.println("Problem parsing sitemap " + sitemapUrl + ": " + e.getMessage());
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+        for (String nested : nestedSitemaps) {
+            fetch(nested, urlConsumer, visited, depth + 1);
+        }
+    }
+
+    /**
+     * A method that parses a sitemap from the given stream. Page URLs (&lt;url&gt;&lt;loc&gt;) are passed to the urlConsumer,
+     * nested sitemap URLs of a sitemap index (&lt;sitemap&gt;&lt;loc&gt;) are passed to the sitemapConsumer.
+     * The stream is not closed by this method.
+     */
+    public void parse(InputStream in, Consumer<String> urlConsumer, Consumer<String> sitemapConsumer)
+            throws IOException, XMLStreamException {
+        InputStream stream = unwrap(in);
+        if (isXml(stream)) {
+            parseXml(stream, urlConsumer, sitemapConsumer);
+        } else {
+            parseText(stream, urlConsumer);
+        }
+    }
+
+    private void parseXml(InputStream in, Consumer<String> urlConsumer, Consumer<String> sitemapConsumer)
+            throws XMLStreamException {
+        XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(in);
+        try {
+            boolean inUrl = false;
+            boolean inSitemap = false;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = localName(reader.getLocalName());
+                    if (name.equals("url")) {
+                        inUrl = true;
+                    } else if (name.equals("sitemap")) {
+                        inSitemap = true;
+                    } else if (name.equals("loc") && (inUrl || inSitemap)) {
+                        String loc = reader.getElementText().trim();
+                        if (!loc.isEmpty()) {
+                            if (inUrl) {
+                                urlConsumer.accept(loc);
+                            } else {
+                                sitemapConsumer.accept(loc);
+                            }
+                        }
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    String name = localName(reader.getLocalName());
+                    if (name.equals("url")) {
+                        inUrl = false;
+                    } else if (name.equals("sitemap")) {
+                        inSitemap = false;
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private void parseText(InputStream in, Consumer<String> urlConsumer) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.startsWith("http://") || line.startsWith("https://")) {
+                urlConsumer.accept(line);
+            }
+        }
+    }
+
+    /**
+     * A method that wraps the stream into a GZIPInputStream, if it starts with the gzip magic bytes.
+     */
+    private InputStream unwrap(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in);
+        buffered.mark(2);
+        int first = buffered.read();
+        int second = buffered.read();
+        buffered.reset();
+        if (first == 0x1f && second == 0x8b) {
+            return new BufferedInputStream(new GZIPInputStream(buffered));
+        }
+        return buffered;
+    }
+
+    /**
+     * A method that peeks at the first non-whitespace character, to decide whether the sitemap is XML or plain text.
+     */
+    private boolean isXml(InputStream in) throws IOException {
+        in.mark(1024);
+        int c;
+        int read = 0;
+        do {
+            c = in.read();
+            read++;
+        } while (c != -1 && read < 1024 && (Character.isWhitespace(c) || c == 0xEF || c == 0xBB || c == 0xBF));
+        in.reset();
+        return c == '<';
+    }
+
+    private String localName(String name) {
+        int colon = name.indexOf(':');
+        return colon >= 0 ? name.substring(colon + 1) : name;
+    }
+}
@@ -0,0 +1,225 @@
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A URL template with placeholders, which are properly URL-encoded when the template is expanded. The template is parsed once,
+ * and it can be expanded with single values, or with a whole grid of values. Supported expressions are a subset of RFC 6570:
+ * 1. {name}      a simple value, e.g. https://example.org/{lang}/index.html
+ * 2. {/a,b}      path segments, e.g. https://example.org{/category,page}
+ * 3. {?a,b}      a query string, e.g. https://www.google.com/search{?q,start}
+ * 4. {&amp;a,b}  a query string continuation, e.g. https://example.org/search?lang=en{&amp;q}
+ * Variables without a value are left out of the expanded URL.
+ */
+public class UrlTemplate {
+    private final String template;
+    private final ArrayList<Part> parts;
+    private final ArrayList<String> variables;
+
+    public UrlTemplate(String template) {
+        this.template = template;
+        this.parts = new ArrayList<>();
+        this.variables = new ArrayList<>();
+        parse();
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    /**
+     * A method that returns the names of all variables used in the template, in the order of their first appearance.
+     */
+    public List<String> getVariables() {
+        return variables;
+    }
+
+    /**
+     * A method that expands the template with the given values.
+     */
+    public String expand(Map<String, String> values) {
+        StringBuilder url = new StringBuilder(template.length() + 32);
+        for (Part part : parts) {
+            part.expand(url, values);
+        }
+        return url.toString();
+    }
+
+    /**
+     * A method that lazily expands the template with every combination of the given values. The URLs are built one by one,
+     * while the returned Iterable is being iterated, so even grids with millions of combinations are never held in memory.
+     * Grid keys which are not variables of the template are ignored, so they do not multiply the number of combinations.
+     * Combinations expanding to an identical URL (e.g. repeated values) are returned only once.
+     * Every iteration of the returned Iterable starts the expansion from the beginning.
+     * The last variable of the template changes the fastest.
+     *
+     * @param grid a list of possible values for every variable
+     */
+    public Iterable<String> expandGrid(Map<String, List<String>> grid) {
+        return () -> new GridIterator(grid);
+    }
+
+    private void parse() {
+        int position = 0;
+        while (position < template.length()) {
+            int open = template.indexOf('{', position);
+            if (open < 0) {
+                parts.add(new Part(template.substring(position)));
+                break;
+            }
+            int close = template.indexOf('}', open);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed expression in URL template " + template);
+            }
+            if (open > position) {
+                parts.add(new Part(template.substring(position, open)));
+            }
+            String expression = template.substring(open + 1, close);
+            char operator = expression.isEmpty() ? 0 : expression.charAt(0);
+            if (operator == '/' || operator == '?' || operator == '&') {
+                expression = expression.substring(1);
+            } else {
+                operator = 0;
+            }
+            String[] names = expression.split(",");
+            for (String name : names) {
+                if (name.isEmpty()) {
+                    throw new IllegalArgumentException("Empty variable name in URL template " + template);
+                }
+                if (!variables.contains(name)) {
+                    variables.add(name);
+                }
+            }
+            parts.add(new Part(operator, names));
+            position = close + 1;
+        }
+    }
+
+    private static String encodeQuery(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static String encodePath(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    /**
+     * A parsed piece of the template - either a literal text, or an expression with an operator and variable names.
+     */
+    private static class Part {
+        private final String literal;
+        private final char operator;
+        private final String[] names;
+
+        private Part(String literal) {
+            this.literal = literal;
+            this.operator = 0;
+            this.names = null;
+        }
+
+        private Part(char operator, String[] names) {
+            this.literal = null;
+            this.operator = operator;
+            this.names = names;
+        }
+
+        private void expand(StringBuilder url, Map<String, String> values) {
+            if (literal != null) {
+                url.append(literal);
+                return;
+            }
+            boolean first = true;
+            for (String name : names) {
+                String value = values.get(name);
+                if (value == null) {
+                    continue;
+                }
+                if (operator == '?' || operator == '&') {
+                    url.append(first ? operator : '&').append(encodeQuery(name)).append('=').append(encodeQuery(value));
+                } else if (operator == '/') {
+                    url.append('/').append(encodePath(value));
+                } else {
+                    if (!first) {
+                        url.append(',');
+                    }
+                    url.append(encodePath(value));
+                }
+                first = false;
+            }
+        }
+    }
+
+    /**
+     * An iterator going through the value grid of the template variables like an odometer - the last variable changes the fastest.
+     * Only the current combination and the hashes of the already returned URLs are kept in memory.
+     */
+    private class GridIterator implements Iterator<String> {
+        private final String[] names;
+        private final ArrayList<List<String>> values;
+        private final int[] counters;
+        private final HashSet<Long> seen;
+        private final HashMap<String, String> current;
+        private boolean exhausted;
+        private String next;
+
+        private GridIterator(Map<String, List<String>> grid) {
+            ArrayList<String> usedNames = new ArrayList<>();
+            for (String name : variables) {
+                List<String> nameValues = grid.get(name);
+                if (nameValues != null && !nameValues.isEmpty()) {
+                    usedNames.add(name);
+                }
+            }
+            this.names = usedNames.toArray(new String[0]);
+            this.values = new ArrayList<>(names.length);
+            for (String name : names) {
+                values.add(grid.get(name));
+            }
+            this.counters = new int[names.length];
+            this.seen = new HashSet<>();
+            this.current = new HashMap<>();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && !exhausted) {
+                for (int i = 0; i < names.length; i++) {
+                    current.put(names[i], values.get(i).get(counters[i]));
+                }
+                String url = expand(current);
+                if (seen.add(Hashing.fnv1a64(url))) {
+                    next = url;
+                }
+                advance();
+            }
+            return next != null;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String url = next;
+            next = null;
+            return url;
+        }
+
+        private void advance() {
+            for (int i = names.length - 1; i >= 0; i--) {
+                counters[i]++;
+                if (counters[i] < values.get(i).size()) {
+                    return;
+                }
+                counters[i] = 0;
+            }
+            exhausted = true;
+        }
+    }
+}
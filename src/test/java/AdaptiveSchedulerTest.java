@@ -0,0 +1,61 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveSchedulerTest {
+
+    @Test
+    public void testAdaptsToChangeRate() {
+        AdaptiveScheduler scheduler = new AdaptiveScheduler(10, 5000, 1000, 1);
+        AdaptiveScheduler.Target staticTarget = scheduler.new Target("static", () -> false);
+        AdaptiveScheduler.Target volatileTarget = scheduler.new Target("volatile", () -> true);
+        assertEquals(-1, staticTarget.getEstimatedChangeRate());
+        for (int i = 0; i <= 20; i++) {
+            staticTarget.record(i * 10L, false);
+            volatileTarget.record(i * 10L, true);
+        }
+        scheduler.shutdown();
+
+        assertEquals(5000, staticTarget.getWantedInterval());
+        assertEquals(0, staticTarget.getEstimatedChangeRate());
+        assertEquals(10, volatileTarget.getWantedInterval());
+        assertEquals(1000 * Math.log(20.5 / 0.5) / 10, volatileTarget.getEstimatedChangeRate(), 1e-9);
+    }
+
+    @Test
+    public void testEstimatesMissedChanges() {
+        AdaptiveScheduler scheduler = new AdaptiveScheduler(10, 100000, 1000, 1);
+        AdaptiveScheduler.Target target = scheduler.new Target("half", () -> true);
+        target.record(0, false);
+        for (int i = 1; i <= 20; i++) {
+            target.record(i * 1000L, i % 2 == 0);
+        }
+        scheduler.shutdown();
+
+        double rate = Math.log(20.5 / 10.5) / 1000;
+        assertEquals(rate * 1000, target.getEstimatedChangeRate(), 1e-9);
+        assertEquals((long) (1 / rate), target.getWantedInterval());
+    }
+
+    @Test
+    public void testRespectsBudget() throws InterruptedException {
+        AdaptiveScheduler scheduler = new AdaptiveScheduler(10, 5000, 50, 4);
+        AtomicInteger runs = new AtomicInteger();
+        AdaptiveScheduler.Target[] targets = new AdaptiveScheduler.Target[10];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = scheduler.schedule("target" + i, () -> {
+                runs.incrementAndGet();
+                return true;
+            });
+        }
+        Thread.sleep(1000);
+        scheduler.shutdown();
+
+        assertTrue(runs.get() <= 55, "Too many runs: " + runs.get());
+        for (AdaptiveScheduler.Target target : targets) {
+            assertTrue(target.getInterval() >= 100);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClusterNodeTest {
+    @TempDir
+    Path folder;
+
+    @Test
+    public void testPartitionsHostsBetweenNodes() throws Exception {
+        ClusterNode[] nodes = startNodes(3);
+        try {
+            int[] owned = new int[nodes.length];
+            for (int host = 0; host < 300; host++) {
+                String url = "https://host" + host + ".example.org/page";
+                int owners = 0;
+                for (int i = 0; i < nodes.length; i++) {
+                    if (nodes[i].owns(url)) {
+                        owners++;
+                        owned[i]++;
+                    }
+                }
+                assertEquals(1, owners);
+            }
+            for (int count : owned) {
+                assertTrue(count > 50, "Uneven partitioning: " + count);
+            }
+        } finally {
+            for (ClusterNode node : nodes) {
+                node.stop();
+            }
+        }
+    }
+
+    @Test
+    public void testLeases() throws Exception {
+        FileCoordinationBackend backend = new FileCoordinationBackend(folder.toString());
+        assertTrue(backend.tryAcquireLease("job", "a", 100));
+        assertFalse(backend.tryAcquireLease("job", "b", 100));
+        assertTrue(backend.tryAcquireLease("job", "a", 100));
+        assertEquals("a", backend.getLeaseHolder("job"));
+        backend.releaseLease("job", "b");
+        assertEquals("a", backend.getLeaseHolder("job"));
+        Thread.sleep(150);
+        assertNull(backend.getLeaseHolder("job"));
+        assertTrue(backend.tryAcquireLease("job", "b", 100));
+
+        backend.heartbeat("b", 100);
+        assertEquals(List.of("b"), backend.getLiveNodes());
+        backend.leave("b");
+        assertEquals(List.of(), backend.getLiveNodes());
+        assertNull(backend.getLeaseHolder("job"));
+    }
+
+    @Test
+    public void testCollidingJobIdsHaveSeparateLeases() throws Exception {
+        FileCoordinationBackend backend = new FileCoordinationBackend(folder.toString()) {
+            @Override
+            String leaseFilePrefix(String jobId) {
+                return "collision";
+            }
+        };
+        assertTrue(backend.tryAcquireLease("job1", "a", 1000));
+        assertTrue(backend.tryAcquireLease("job2", "b", 1000));
+        assertEquals("a", backend.getLeaseHolder("job1"));
+        assertEquals("b", backend.getLeaseHolder("job2"));
+        assertFalse(backend.tryAcquireLease("job2", "a", 1000));
+
+        backend.releaseLease("job1", "b");
+        assertEquals("a", backend.getLeaseHolder("job1"));
+        backend.releaseLease("job1", "a");
+        assertNull(backend.getLeaseHolder("job1"));
+        assertEquals("b", backend.getLeaseHolder("job2"));
+        assertFalse(backend.tryAcquireLease("job2", "c", 1000));
+        assertTrue(backend.tryAcquireLease("job3", "c", 1000));
+        assertEquals("b", backend.getLeaseHolder("job2"));
+        assertEquals("c", backend.getLeaseHolder("job3"));
+    }
+
+    @Test
+    public void testJobRunsOnOneNodeAndFailsOver() throws Exception {
+        ClusterNode[] nodes = startNodes(2);
+        AtomicInteger[] runs = {new AtomicInteger(), new AtomicInteger()};
+        String url = "https://example.org/";
+        for (int i = 0; i < nodes.length; i++) {
+            AtomicInteger counter = runs[i];
+            nodes[i].automatize("job", url, 50, counter::incrementAndGet);
+        }
+        Thread.sleep(500);
+
+        int owner = nodes[0].owns(url) ? 0 : 1;
+        int other = 1 - owner;
+        assertTrue(runs[owner].get() > 3);
+        assertEquals(0, runs[other].get());
+
+        nodes[owner].stop();
+        Thread.sleep(500);
+        try {
+            assertTrue(nodes[other].owns(url));
+            assertTrue(runs[other].get() > 3);
+        } finally {
+            nodes[other].stop();
+        }
+    }
+
+    @Test
+    public void testOnlyLeaseHolderReleasesLease() throws Exception {
+        AtomicInteger[] releases = {new AtomicInteger(), new AtomicInteger()};
+        ClusterNode[] nodes = new ClusterNode[2];
+        for (int i = 0; i < nodes.length; i++) {
+            AtomicInteger counter = releases[i];
+            CoordinationBackend backend = new FileCoordinationBackend(folder.toString()) {
+                @Override
+                public void releaseLease(String jobId, String nodeId) throws IOException {
+                    counter.incrementAndGet();
+                    super.releaseLease(jobId, nodeId);
+                }
+            };
+            nodes[i] = new ClusterNode("node" + i, backend, 50).start();
+        }
+        Thread.sleep(200);
+        String url = "https://example.org/";
+        try {
+            for (ClusterNode node : nodes) {
+                node.automatize("job", url, 20, () -> { });
+            }
+            Thread.sleep(300);
+            assertEquals(0, releases[0].get() + releases[1].get());
+        } finally {
+            for (ClusterNode node : nodes) {
+                node.stop();
+            }
+        }
+    }
+
+    @Test
+    public void testLeaseIsRenewedDuringLongRun() throws Exception {
+        ClusterNode node = new ClusterNode("node0", new FileCoordinationBackend(folder.toString()), 50).start();
+        FileCoordinationBackend backend = new FileCoordinationBackend(folder.toString());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        try {
+            node.automatize("slow-job", "https://example.org/", 50, () -> {
+                started.countDown();
+                try {
+                    finish.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            // the lease TTL is 200 ms, the job runs far longer
+            Thread.sleep(600);
+            assertEquals("node0", backend.getLeaseHolder("slow-job"));
+            assertFalse(backend.tryAcquireLease("slow-job", "other", 1000));
+        } finally {
+            finish.countDown();
+            node.stop();
+        }
+    }
+
+    @Test
+    public void testStoppingNodeFinishesRunningJob() throws Exception {
+        ClusterNode[] nodes = startNodes(2);
+        String url = "https://example.org/";
+        int owner = nodes[0].owns(url) ? 0 : 1;
+        int other = 1 - owner;
+        CountDownLatch ownerStarted = new CountDownLatch(1);
+        AtomicLong ownerFinishedAt = new AtomicLong();
+        AtomicLong otherStartedAt = new AtomicLong();
+        nodes[owner].automatize("long-job", url, 50, () -> {
+            ownerStarted.countDown();
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ownerFinishedAt.set(System.nanoTime());
+        });
+        nodes[other].automatize("long-job", url, 50, () -> otherStartedAt.compareAndSet(0, System.nanoTime()));
+        try {
+            assertTrue(ownerStarted.await(5, TimeUnit.SECONDS));
+            nodes[owner].stop();
+            assertTrue(ownerFinishedAt.get() != 0);
+            Thread.sleep(500);
+            assertTrue(otherStartedAt.get() != 0);
+            assertTrue(otherStartedAt.get() > ownerFinishedAt.get(), "The job was started while the stopping node was running it");
+        } finally {
+            nodes[other].stop();
+        }
+    }
+
+    @Test
+    public void testLeaseIsSharedBetweenJvms() throws Exception {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process child = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                "ClusterNodeTest", folder.toString()).redirectErrorStream(true).start();
+        try {
+            BufferedReader output = new BufferedReader(new InputStreamReader(child.getInputStream(), StandardCharsets.UTF_8));
+            assertEquals("READY", output.readLine());
+
+            FileCoordinationBackend backend = new FileCoordinationBackend(folder.toString());
+            assertEquals(List.of("child"), backend.getLiveNodes());
+            assertEquals("child", backend.getLeaseHolder("shared-job"));
+            assertFalse(backend.tryAcquireLease("shared-job", "parent", 1000));
+        } finally {
+            child.getOutputStream().close();
+            child.waitFor();
+        }
+        FileCoordinationBackend backend = new FileCoordinationBackend(folder.toString());
+        assertTrue(backend.tryAcquireLease("shared-job", "parent", 1000));
+    }
+
+    /**
+     * The entry point of the child JVM in testLeaseIsSharedBetweenJvms. It holds a lease until its standard input is closed.
+     */
+    public static void main(String[] args) throws IOException {
+        FileCoordinationBackend backend = new FileCoordinationBackend(args[0]);
+        backend.heartbeat("child", 60000);
+        if (!backend.tryAcquireLease("shared-job", "child", 60000)) {
+            System.out.println("LEASE NOT ACQUIRED");
+            return;
+        }
+        System.out.println("READY");
+        System.out.flush();
+        while (System.in.read() != -1) {
+        }
+        backend.leave("child");
+    }
+
+    private ClusterNode[] startNodes(int count) throws Exception {
+        ClusterNode[] nodes = new ClusterNode[count];
+        for (int i = 0; i < count; i++) {
+            nodes[i] = new ClusterNode("node" + i, new FileCoordinationBackend(folder.toString()), 50).start();
+        }
+        Thread.sleep(200);
+        for (ClusterNode node : nodes) {
+            assertEquals(count, node.getLiveNodes().size());
+        }
+        return nodes;
+    }
+}
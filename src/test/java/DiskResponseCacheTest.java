@@ -0,0 +1,166 @@
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiskResponseCacheTest {
+    @TempDir
+    Path folder;
+
+    private HttpServer server;
+    private AtomicInteger fullResponses;
+    private AtomicInteger notModifiedResponses;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        fullResponses = new AtomicInteger();
+        notModifiedResponses = new AtomicInteger();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/page", exchange -> {
+            if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModifiedResponses.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                fullResponses.incrementAndGet();
+                byte[] body = "<html><body><p>cached page</p></body></html>".getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "text/html; charset=UTF-8");
+                exchange.getResponseHeaders().add("ETag", "\"v1\"");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testPersistsAcrossRestarts() throws IOException {
+        try (DiskResponseCache cache = new DiskResponseCache(folder.toString(), 1 << 20)) {
+            cache.put("http://example.org/", bytes("first"), "UTF-8", "\"a\"", null);
+            cache.put("http://example.org/", bytes("second"), "UTF-8", "\"b\"", "Mon, 01 Feb 2021 00:00:00 GMT");
+            cache.put("http://example.org/other", bytes("other"), null, null, null);
+        }
+        try (DiskResponseCache cache = new DiskResponseCache(folder.toString(), 1 << 20)) {
+            assertEquals(2, cache.count());
+            DiskResponseCache.CachedResponse response = cache.get("http://example.org/");
+            assertEquals("second", new String(response.getBody(), StandardCharsets.UTF_8));
+            assertEquals("\"b\"", response.getEtag());
+            assertEquals("Mon, 01 Feb 2021 00:00:00 GMT", response.getLastModified());
+            assertNull(cache.get("http://example.org/other").getEtag());
+            assertNull(cache.get("http://example.org/missing"));
+        }
+    }
+
+    @Test
+    public void testRecoversFromTornWrite() throws IOException {
+        try (DiskResponseCache cache = new DiskResponseCache(folder.toString(), 1 << 20)) {
+            cache.put("http://example.org/", bytes("complete"), "UTF-8", null, null);
+        }
+        Path log = folder.resolve("responses.log");
+        long validSize = Files.size(log);
+        Files.write(log, new byte[]{0x48, 0x53, 0x43, 0x31, 0, 0, 1, 0, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        try (DiskResponseCache cache = new DiskResponseCache(folder.toString(), 1 << 20)) {
+            assertEquals(1, cache.count());
+            assertEquals(validSize, cache.size());
+            assertEquals("complete", new String(cache.get("http://example.org/").getBody(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() throws IOException {
+        try (DiskResponseCache cache = new DiskResponseCache(folder.toString(), 4096)) {
+            byte[] body = new byte[1000];
+            cache.put("http://example.org/1", body, null, null, null);
+            cache.put("http://example.org/2", body, null, null, null);
+            cache.put("http://example.org/3", body, null, null, null);
+            cache.get("http://example.org/1");
+            cache.put("http://example.org/4", body, null, null, null);
+
+            assertTrue(cache.size() <= 4096);
+            assertNotNull(cache.get("http://example.org/1"));
+            assertNull(cache.get("http://example.org/2"));
+            assertNotNull(cache.get("http://example.org/4"));
+        }
+    }
+
+    @Test
+    public void testCompactsToLowWaterMark() throws IOException {
+        try (DiskResponseCache cache = new DiskResponseCache(folder.toString(), 100 * 1024)) {
+            byte[] body = new byte[1024];
+            for (int i = 0; i < 1000; i++) {
+                cache.put("http://example.org/" + i, body, null, null, null);
+                assertTrue(cache.size() <= 100 * 1024);
+            }
+            assertTrue(cache.getCompactions() > 0);
+            assertTrue(cache.getCompactions() < 50, "Too many compactions: " + cache.getCompactions());
+            assertNotNull(cache.get("http://example.org/999"));
+            assertNull(cache.get("http://example.org/0"));
+        }
+    }
+
+    @Test
+    public void testStaysUsableWhenCompactionFails() throws IOException {
+        AtomicInteger failedMoves = new AtomicInteger();
+        try (DiskResponseCache cache = new DiskResponseCache(folder.toString(), 4096) {
+            @Override
+            void replaceLog(Path compacted) throws IOException {
+                failedMoves.incrementAndGet();
+                throw new IOException("Simulated failure of the move");
+            }
+        }) {
+            byte[] body = new byte[1000];
+            for (int i = 1; i <= 4; i++) {
+                cache.put("http://example.org/" + i, body, null, null, null);
+            }
+            assertEquals(1, failedMoves.get());
+            assertEquals(3, cache.count());
+            assertNotNull(cache.get("http://example.org/1"));
+            cache.put("http://example.org/small", bytes("small"), null, null, null);
+            assertEquals("small", new String(cache.get("http://example.org/small").getBody(), StandardCharsets.UTF_8));
+            assertFalse(Files.exists(folder.resolve("responses.log.tmp")));
+        }
+    }
+
+    @Test
+    public void testRevalidationAndReplay() throws IOException {
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/page";
+        try (DiskResponseCache cache = new DiskResponseCache(folder.toString(), 1 << 20)) {
+            HtmlScraper scraper = new HtmlScraper(url).setResponseCache(cache);
+            assertEquals("cached page", scraper.getTags("p", HtmlScraper.TYPE.WITHOUT_TAG).get(0));
+            assertEquals("cached page", scraper.getTags("p", HtmlScraper.TYPE.WITHOUT_TAG).get(0));
+        }
+        assertEquals(1, fullResponses.get());
+        assertEquals(1, notModifiedResponses.get());
+
+        server.stop(0);
+        try (DiskResponseCache cache = new DiskResponseCache(folder.toString(), 1 << 20)) {
+            HtmlScraper scraper = new HtmlScraper(url).setResponseCache(cache.setCacheOnly(true))
+                    .setRobotsCache(new RobotsCache("HtmlScraper", 60000));
+            assertEquals("cached page", scraper.getTags("p", HtmlScraper.TYPE.WITHOUT_TAG).get(0));
+        }
+    }
+
+    private byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
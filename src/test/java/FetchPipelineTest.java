@@ -0,0 +1,152 @@
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FetchPipelineTest {
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private AtomicInteger inFlight;
+    private AtomicInteger maxInFlight;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        inFlight = new AtomicInteger();
+        maxInFlight = new AtomicInteger();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/search", exchange -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(30);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = ("<html><body><p>" + exchange.getRequestURI().getQuery().replace("&", " ") + "</p></body></html>")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/html; charset=UTF-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+            inFlight.decrementAndGet();
+        });
+        serverExecutor = Executors.newFixedThreadPool(16);
+        server.setExecutor(serverExecutor);
+        server.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testFetchesInParallel() {
+        UrlTemplate template = new UrlTemplate(base() + "/search{?q,page}");
+        Map<String, List<String>> grid = new LinkedHashMap<>();
+        ArrayList<String> pages = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            pages.add(String.valueOf(i));
+        }
+        grid.put("q", List.of("a", "b", "c"));
+        grid.put("page", pages);
+
+        List<String> scraped = Collections.synchronizedList(new ArrayList<>());
+        long processed = new FetchPipeline(4)
+                .setScraperFactory(url -> new HtmlScraper(url).addSelector("p"))
+                .run(template, grid, scraper -> scraped.add(scraper.getTags("p", HtmlScraper.TYPE.WITHOUT_TAG).get(0)));
+        assertEquals(60, processed);
+        assertEquals(60, scraped.size());
+        assertTrue(scraped.contains("q=c page=19"));
+        assertTrue(maxInFlight.get() > 1, "URLs were not fetched in parallel");
+        assertTrue(maxInFlight.get() <= 4, "Too many URLs fetched at once: " + maxInFlight.get());
+    }
+
+    @Test
+    public void testPullsUrlsLazily() {
+        AtomicInteger pulled = new AtomicInteger();
+        AtomicInteger finished = new AtomicInteger();
+        AtomicInteger maxPending = new AtomicInteger();
+        Iterator<String> urls = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return pulled.get() < 40;
+            }
+
+            @Override
+            public String next() {
+                maxPending.accumulateAndGet(pulled.incrementAndGet() - finished.get(), Math::max);
+                return base() + "/search?page=" + pulled.get();
+            }
+        };
+        long processed = new FetchPipeline(2).run(urls, scraper -> {
+            scraper.getTags("p", HtmlScraper.TYPE.WITHOUT_TAG);
+            finished.incrementAndGet();
+        });
+        assertEquals(40, processed);
+        // at most twice the parallelism is queued, plus the URL waiting for a free slot
+        assertTrue(maxPending.get() <= 5, "Too many URLs pulled ahead: " + maxPending.get());
+    }
+
+    @Test
+    public void testShutsDownWhenIteratorFails() throws InterruptedException {
+        Iterator<String> urls = new Iterator<>() {
+            private int count;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public String next() {
+                if (++count > 3) {
+                    throw new IllegalStateException("Broken URL source");
+                }
+                return base() + "/search?page=" + count;
+            }
+        };
+        AtomicInteger finished = new AtomicInteger();
+        FetchPipeline pipeline = new FetchPipeline(2);
+        assertThrows(IllegalStateException.class, () -> pipeline.run(urls, scraper -> {
+            scraper.getTags("p", HtmlScraper.TYPE.WITHOUT_TAG);
+            finished.incrementAndGet();
+        }));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (hasPipelineThreads() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertFalse(hasPipelineThreads(), "Worker threads are still running");
+        assertEquals(3, finished.get());
+    }
+
+    private boolean hasPipelineThreads() {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("fetch-pipeline-") && thread.isAlive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String base() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+}
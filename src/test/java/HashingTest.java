@@ -0,0 +1,13 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashingTest {
+
+    @Test
+    public void testFnv1aReferenceValues() {
+        assertEquals(0xcbf29ce484222325L, Hashing.fnv1a64(""));
+        assertEquals(0xaf63dc4c8601ec8cL, Hashing.fnv1a64("a"));
+        assertEquals(0x85944171f73967e8L, Hashing.fnv1a64("foobar"));
+    }
+}
@@ -0,0 +1,123 @@
+import com.sun.net.httpserver.HttpServer;
+import org.jsoup.nodes.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HtmlUnitRendererTest {
+    private static HttpServer server;
+    private static HtmlUnitRenderer renderer;
+    private static final Map<String, AtomicInteger> hits = new ConcurrentHashMap<>();
+
+    @BeforeAll
+    public static void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            hits.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+            String body;
+            String contentType = "text/html; charset=UTF-8";
+            switch (path) {
+                case "/page":
+                    body = "<html><head><link rel='stylesheet' href='/style.css'>" +
+                            "<script src='/app.js'></script>" +
+                            "<script src='http://localhost:" + server.getAddress().getPort() + "/tracker.js'></script>" +
+                            "<script src='http://localhost:" + server.getAddress().getPort() + "/collect?id=1'></script></head>" +
+                            "<body><img src='/logo.png'><div id='root'></div>" +
+                            "<script>render(); setTimeout(function() {" +
+                            "var p = document.createElement('p'); p.id = 'late'; p.textContent = 'later';" +
+                            "document.body.appendChild(p);}, 50);</script></body></html>";
+                    break;
+                case "/app.js":
+                    contentType = "application/javascript";
+                    body = "function render() { var p = document.createElement('p'); p.id = 'dynamic';" +
+                            "p.textContent = 'rendered'; document.getElementById('root').appendChild(p); }";
+                    break;
+                case "/loop":
+                    body = "<html><body><p id='before'>before</p><script>while (true) {}</script></body></html>";
+                    break;
+                default:
+                    contentType = "text/plain";
+                    body = "";
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", contentType);
+            exchange.sendResponseHeaders(200, bytes.length == 0 ? -1 : bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+        renderer = new HtmlUnitRenderer(2).setBlockThirdPartyScripts(true);
+    }
+
+    @AfterAll
+    public static void stopServer() {
+        renderer.close();
+        server.stop(0);
+    }
+
+    @BeforeEach
+    public void setup() {
+        hits.clear();
+    }
+
+    @Test
+    public void testRendersJavaScriptAndBlocksResources() throws IOException {
+        Document document = renderer.render(url("/page"));
+        assertEquals("rendered", document.getElementById("dynamic").text());
+        assertEquals("later", document.getElementById("late").text());
+        assertEquals(1, hits.get("/app.js").get());
+        assertNull(hits.get("/style.css"));
+        assertNull(hits.get("/logo.png"));
+        assertNull(hits.get("/tracker.js"));
+        assertNull(hits.get("/collect"));
+    }
+
+    @Test
+    public void testReusesBrowsersWithScraper() {
+        for (int i = 0; i < 5; i++) {
+            HtmlScraper scraper = new HtmlScraper(url("/page")).setRenderer(renderer);
+            assertEquals("rendered", scraper.getId("dynamic", HtmlScraper.TYPE.WITHOUT_TAG));
+        }
+        assertEquals(5, hits.get("/page").get());
+    }
+
+    @Test
+    public void testBoundsJavaScriptExecution() throws IOException {
+        renderer.setJavaScriptTimeout(500);
+        long start = System.currentTimeMillis();
+        Document document = renderer.render(url("/loop"));
+        renderer.setJavaScriptTimeout(5000);
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        assertEquals("before", document.getElementById("before").text());
+        assertEquals("rendered", renderer.render(url("/page")).getElementById("dynamic").text());
+    }
+
+    @Test
+    public void testRenderAfterCloseFails() {
+        HtmlUnitRenderer closedRenderer = new HtmlUnitRenderer(1);
+        closedRenderer.close();
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            assertThrows(IOException.class, () -> closedRenderer.render(url("/page")));
+            assertThrows(IOException.class, () -> closedRenderer.render(url("/page")));
+        });
+        assertNull(hits.get("/page"));
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+}
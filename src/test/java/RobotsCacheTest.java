@@ -0,0 +1,123 @@
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RobotsCacheTest {
+    private HttpServer server;
+    private AtomicInteger downloads;
+    private List<String> userAgents;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        downloads = new AtomicInteger();
+        userAgents = new CopyOnWriteArrayList<>();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/robots.txt", exchange -> {
+            downloads.incrementAndGet();
+            byte[] body = ("User-agent: *\nDisallow: /private/\nCrawl-delay: 0.2\nSitemap: " + base() + "/sitemap.xml\n")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.createContext("/page", exchange -> {
+            userAgents.add(exchange.getRequestHeaders().getFirst("User-Agent"));
+            byte[] body = "<html><body><p>page</p></body></html>".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/html; charset=UTF-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testDownloadsOncePerHost() throws Exception {
+        RobotsCache cache = new RobotsCache("MyScraper", 60000);
+        assertTrue(cache.isAllowed(base() + "/"));
+        assertFalse(cache.isAllowed(base() + "/private/page"));
+        assertEquals(List.of(base() + "/sitemap.xml"), cache.getSitemaps(base() + "/any"));
+        assertEquals(1, downloads.get());
+
+        String otherHost = "http://localhost:" + server.getAddress().getPort();
+        assertFalse(cache.isAllowed(otherHost + "/private/"));
+        assertEquals(2, downloads.get());
+    }
+
+    @Test
+    public void testDownloadsAgainAfterTtl() throws Exception {
+        RobotsCache cache = new RobotsCache("MyScraper", 100);
+        cache.isAllowed(base() + "/");
+        cache.isAllowed(base() + "/other");
+        assertEquals(1, downloads.get());
+        Thread.sleep(150);
+        cache.isAllowed(base() + "/");
+        assertEquals(2, downloads.get());
+    }
+
+    @Test
+    public void testConcurrentRequestsShareOneDownload() throws Exception {
+        RobotsCache cache = new RobotsCache("MyScraper", 60000);
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> cache.isAllowed(base() + "/"));
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1, downloads.get());
+    }
+
+    @Test
+    public void testScraperUsesUserAgentAndCrawlDelay() {
+        RobotsCache cache = new RobotsCache("MyScraper", 60000);
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 3; i++) {
+            HtmlScraper scraper = new HtmlScraper(base() + "/page").setRobotsCache(cache);
+            assertEquals("page", scraper.getTags("p", HtmlScraper.TYPE.WITHOUT_TAG).get(0));
+        }
+        assertTrue(System.currentTimeMillis() - start >= 400, "Crawl delay was not respected");
+        assertEquals(List.of("MyScraper", "MyScraper", "MyScraper"), userAgents);
+    }
+
+    @Test
+    public void testFailedDownloadExpires() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        RobotsCache cache = new RobotsCache("MyScraper", 100) {
+            @Override
+            RobotsTxt download(String hostKey) {
+                if (attempts.incrementAndGet() == 1) {
+                    throw new IllegalStateException("Simulated failure of the download");
+                }
+                return RobotsTxt.allowAll();
+            }
+        };
+        assertFalse(cache.isAllowed(base() + "/"));
+        Thread.sleep(150);
+        assertTrue(cache.isAllowed(base() + "/"));
+        assertEquals(2, attempts.get());
+    }
+
+    private String base() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+}
@@ -0,0 +1,40 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RobotsTxtTest {
+    private static final String ROBOTS = "# comment\n" +
+            "User-agent: *\n" +
+            "Disallow: /private/\n" +
+            "Allow: /private/public\n" +
+            "Disallow: /*.pdf$\n" +
+            "Crawl-delay: 2\n" +
+            "\n" +
+            "User-agent: BadBot\n" +
+            "Disallow: /\n" +
+            "\n" +
+            "Sitemap: https://example.org/sitemap.xml\n";
+
+    @Test
+    public void testWildcardGroup() {
+        RobotsTxt robots = RobotsTxt.parse(ROBOTS, "MyScraper");
+        assertTrue(robots.isAllowed("/"));
+        assertFalse(robots.isAllowed("/private/secret"));
+        assertTrue(robots.isAllowed("/private/public/page"));
+        assertFalse(robots.isAllowed("/files/report.pdf"));
+        assertTrue(robots.isAllowed("/files/report.pdf?download=1"));
+        assertEquals(2000, robots.getCrawlDelay());
+        assertEquals(List.of("https://example.org/sitemap.xml"), robots.getSitemaps());
+    }
+
+    @Test
+    public void testSpecificGroup() {
+        RobotsTxt robots = RobotsTxt.parse(ROBOTS, "BadBot/1.0");
+        assertFalse(robots.isAllowed("/"));
+        assertFalse(robots.isAllowed("/anything"));
+        assertTrue(robots.isAllowed("/robots.txt"));
+        assertEquals(-1, robots.getCrawlDelay());
+    }
+}
@@ -0,0 +1,63 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SelectorDiffTest {
+
+    @Test
+    public void testFirstRunAddsEverything() {
+        SelectorDiff diff = new SelectorDiff();
+        List<SelectorChange> changes = diff.update(List.of("a", "b", "c"));
+        assertEquals(3, changes.size());
+        for (SelectorChange change : changes) {
+            assertEquals(SelectorChange.TYPE.ADDED, change.getType());
+        }
+        assertEquals(0, diff.update(List.of("a", "b", "c")).size());
+    }
+
+    @Test
+    public void testAddedAndRemoved() {
+        SelectorDiff diff = new SelectorDiff();
+        diff.update(List.of("a", "b", "c"));
+        List<SelectorChange> changes = diff.update(List.of("a", "c", "d"));
+        assertEquals(2, changes.size());
+        assertEquals(SelectorChange.TYPE.ADDED, changes.get(0).getType());
+        assertEquals("d", changes.get(0).getValue());
+        assertEquals(SelectorChange.TYPE.REMOVED, changes.get(1).getType());
+        assertNull(changes.get(1).getValue());
+    }
+
+    @Test
+    public void testDuplicates() {
+        SelectorDiff diff = new SelectorDiff();
+        diff.update(List.of("a", "a"));
+        List<SelectorChange> changes = diff.update(List.of("a"));
+        assertEquals(1, changes.size());
+        assertEquals(SelectorChange.TYPE.REMOVED, changes.get(0).getType());
+    }
+
+    @Test
+    public void testChangedWithKeyExtractor() {
+        SelectorDiff diff = new SelectorDiff(item -> item.substring(0, item.indexOf(':')));
+        diff.update(List.of("1:apple 10", "2:pear 20"));
+        List<SelectorChange> changes = diff.update(List.of("1:apple 12", "2:pear 20"));
+        assertEquals(1, changes.size());
+        assertEquals(SelectorChange.TYPE.CHANGED, changes.get(0).getType());
+        assertEquals("1:apple 12", changes.get(0).getValue());
+        assertTrue(changes.get(0).toString().startsWith("CHANGED\t"));
+    }
+
+    @Test
+    public void testMultiLineItemStaysOnOneLine() {
+        SelectorDiff diff = new SelectorDiff();
+        List<SelectorChange> changes = diff.update(List.of("<p>\n\tfirst\\second\r\n</p>"));
+        assertEquals("<p>\n\tfirst\\second\r\n</p>", changes.get(0).getValue());
+        String line = changes.get(0).toString();
+        assertFalse(line.contains("\n") || line.contains("\r"));
+        String[] fields = line.split("\t");
+        assertEquals(3, fields.length);
+        assertEquals("<p>\\n\\tfirst\\\\second\\r\\n</p>", fields[2]);
+    }
+}
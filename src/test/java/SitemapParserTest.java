@@ -0,0 +1,100 @@
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SitemapParserTest {
+
+    @Test
+    public void testSitemapIndex() throws Exception {
+        String index = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                "<sitemapindex xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">\n" +
+                "  <sitemap><loc>https://example.org/sitemap1.xml.gz</loc></sitemap>\n" +
+                "  <sitemap><loc>https://example.org/sitemap2.xml</loc></sitemap>\n" +
+                "</sitemapindex>";
+        ArrayList<String> urls = new ArrayList<>();
+        ArrayList<String> sitemaps = new ArrayList<>();
+        new SitemapParser().parse(new ByteArrayInputStream(index.getBytes(StandardCharsets.UTF_8)), urls::add, sitemaps::add);
+        assertEquals(0, urls.size());
+        assertEquals(List.of("https://example.org/sitemap1.xml.gz", "https://example.org/sitemap2.xml"), sitemaps);
+    }
+
+    @Test
+    public void testGzippedSitemap() throws Exception {
+        int[] count = {0};
+        String[] last = {null};
+        new SitemapParser().parse(new ByteArrayInputStream(gzip(urlset("page", 50000))), url -> {
+            count[0]++;
+            last[0] = url;
+        }, url -> fail("Unexpected nested sitemap " + url));
+        assertEquals(50000, count[0]);
+        assertEquals("https://example.org/page/49999", last[0]);
+    }
+
+    @Test
+    public void testTextSitemap() throws Exception {
+        String sitemap = "https://example.org/a\n\nhttps://example.org/b\n";
+        ArrayList<String> urls = new ArrayList<>();
+        new SitemapParser().parse(new ByteArrayInputStream(sitemap.getBytes(StandardCharsets.UTF_8)), urls::add, urls::add);
+        assertEquals(List.of("https://example.org/a", "https://example.org/b"), urls);
+    }
+
+    @Test
+    public void testFetchesNestedSitemapsAfterIndex() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+        server.createContext("/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            byte[] body;
+            if (path.equals("/index.xml")) {
+                body = ("<sitemapindex><sitemap><loc>" + base + "/a.xml.gz</loc></sitemap>" +
+                        "<sitemap><loc>" + base + "/b.xml</loc></sitemap></sitemapindex>").getBytes(StandardCharsets.UTF_8);
+            } else if (path.equals("/a.xml.gz")) {
+                body = gzip(urlset("a", 3));
+            } else {
+                body = urlset("b", 2).getBytes(StandardCharsets.UTF_8);
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        try {
+            ArrayList<String> urls = new ArrayList<>();
+            new SitemapParser().fetch(base + "/index.xml", urls::add);
+            assertEquals(List.of("https://example.org/a/0", "https://example.org/a/1", "https://example.org/a/2",
+                    "https://example.org/b/0", "https://example.org/b/1"), urls);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static String urlset(String folder, int size) {
+        StringBuilder sitemap = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                "<urlset xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">\n");
+        for (int i = 0; i < size; i++) {
+            sitemap.append("<url><loc>https://example.org/").append(folder).append("/").append(i)
+                    .append("</loc><lastmod>2021-01-01</lastmod></url>\n");
+        }
+        return sitemap.append("</urlset>").toString();
+    }
+
+    private static byte[] gzip(String content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+}
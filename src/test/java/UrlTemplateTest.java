@@ -0,0 +1,66 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UrlTemplateTest {
+
+    @Test
+    public void testExpand() {
+        UrlTemplate template = new UrlTemplate("https://www.google.com{/folder}/search{?q,start}");
+        Map<String, String> values = new HashMap<>();
+        values.put("folder", "my folder");
+        values.put("q", "cute kittens & dogs");
+        assertEquals("https://www.google.com/my%20folder/search?q=cute+kittens+%26+dogs", template.expand(values));
+
+        values.put("start", "10");
+        assertEquals("https://www.google.com/my%20folder/search?q=cute+kittens+%26+dogs&start=10", template.expand(values));
+        assertEquals(List.of("folder", "q", "start"), template.getVariables());
+    }
+
+    @Test
+    public void testContinuationAndSimple() {
+        UrlTemplate template = new UrlTemplate("https://example.org/{lang}/search?x=1{&q}");
+        Map<String, String> values = new HashMap<>();
+        values.put("lang", "cs");
+        values.put("q", "\u010Daj");
+        assertEquals("https://example.org/cs/search?x=1&q=%C4%8Daj", template.expand(values));
+        assertThrows(IllegalArgumentException.class, () -> new UrlTemplate("https://example.org/{q"));
+    }
+
+    @Test
+    public void testExpandGridLazilyWithoutDuplicates() {
+        UrlTemplate template = new UrlTemplate("https://example.org/search{?q,page}");
+        Map<String, List<String>> grid = new LinkedHashMap<>();
+        grid.put("unused", new AbstractList<>() {
+            @Override
+            public String get(int index) {
+                return fail("A key which is not a template variable was walked");
+            }
+
+            @Override
+            public int size() {
+                return 1000;
+            }
+        });
+        grid.put("page", List.of("1", "2"));
+        grid.put("q", List.of("a", "b", "a"));
+
+        ArrayList<String> urls = new ArrayList<>();
+        for (String url : template.expandGrid(grid)) {
+            urls.add(url);
+        }
+        assertEquals(List.of("https://example.org/search?q=a&page=1", "https://example.org/search?q=a&page=2",
+                "https://example.org/search?q=b&page=1", "https://example.org/search?q=b&page=2"), urls);
+
+        Iterator<String> iterator = template.expandGrid(Map.of("q", List.of("a"), "page", List.of("1", "2", "3"))).iterator();
+        assertEquals("https://example.org/search?q=a&page=1", iterator.next());
+    }
+}